@@ -0,0 +1,145 @@
+package npuzzle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The fixed boards every benchmark runs on (see SearchBenchmarks). Everything is generated from fixed seeds, so every
+ * run (and every machine) measures the same work and results can be compared between commits.
+ */
+public final class Corpus {
+
+    public static final long SEED = 20161001L;
+
+    // Korf's 15-puzzle instance #1 (57 moves), in his notation (goal 0 1 2 ... 15, see korfToBoard)
+    public static final String KORF_1 = "14 13 15 7 11 12 9 5 6 0 2 1 4 8 10 3";
+
+    private Corpus(){}
+
+    /**
+     * Shuffles boards with random walks from the goal, so every board can be solved
+     * @param edgeLength the edge length of the boards
+     * @param count the number of boards
+     * @param walkLength the number of random moves per board (moves undoing the previous one are not counted)
+     * @param seed the seed of the walks
+     * @return the boards
+     */
+    public static List<Board> randomWalks(int edgeLength, int count, int walkLength, long seed){
+
+        BoardLayout layout = BoardLayout.forEdgeLength(edgeLength);
+        Random random = new Random(seed);
+        List<Board> boards = new ArrayList<>(count);
+        long[] goal = new long[layout.words];
+        layout.copyGoal(goal, 0);
+
+        for(int i = 0; i < count; ++i){
+            Board board = new Board(layout, goal, 0);
+            int last = Constants.NO_MOVE;
+            for(int moves = 0; moves < walkLength; ){
+                int direction = random.nextInt(4);
+                if(last != Constants.NO_MOVE && direction == Constants.opposite(last))
+                    continue;
+                if(board.makeMove(direction) != 0){
+                    last = direction;
+                    moves++;
+                }
+            }
+            boards.add(board);
+        }
+        return boards;
+    }
+
+    /**
+     * Grabs 3x3 boards drawn uniformly from every solvable board
+     * @param count the number of boards
+     * @return the boards
+     */
+    public static List<Board> eightPuzzles(int count){
+
+        Random random = new Random(SEED);
+        List<Board> boards = new ArrayList<>(count);
+        int[] tiles = new int[9];
+        while(boards.size() < count){
+            for(int i = 0; i < 9; ++i)
+                tiles[i] = i;
+            for(int i = 8; i > 0; --i){
+                int j = random.nextInt(i + 1);
+                int swap = tiles[i];
+                tiles[i] = tiles[j];
+                tiles[j] = swap;
+            }
+            StringBuilder board = new StringBuilder();
+            for(int tile : tiles)
+                board.append(tile);
+            Board candidate = new Board(board.toString());
+            if(candidate.hasSolution())
+                boards.add(candidate);
+        }
+        return boards;
+    }
+
+    /**
+     * Packs boards back to back in one array, with a stride of layout.words
+     * @param boards boards of the same size
+     * @return the packed states
+     */
+    public static long[] pack(List<Board> boards){
+
+        int words = boards.get(0).getLayout().words;
+        long[] states = new long[boards.size() * words];
+        for(int i = 0; i < boards.size(); ++i)
+            boards.get(i).copyBoardState(states, i * words);
+        return states;
+    }
+
+    /**
+     * Collects distinct boards in breadth-first order from the goal (the states the closed set benchmarks insert)
+     * @param edgeLength the edge length of the boards
+     * @param count the number of boards
+     * @return the packed states, back to back
+     */
+    public static long[] distinctStates(int edgeLength, int count){
+
+        BoardLayout layout = BoardLayout.forEdgeLength(edgeLength);
+        ClosedSet seen = new ClosedSet(layout);
+        SuccessorBuffer successors = new SuccessorBuffer(layout, new ManhattanHeuristic(layout));
+        long[] state = new long[layout.words];
+        layout.copyGoal(state, 0);
+        seen.setBlank(-seen.lookupOrInsert(state, 0) - 1, layout.boardSize - 1);
+
+        for(int handle = 0; handle < seen.size() && seen.size() < count; ++handle){
+            seen.copyState(handle, state, 0);
+            successors.generate(state, 0, seen.getBlank(handle), 0, Constants.NO_MOVE);
+            for(int i = 0; i < successors.count && seen.size() < count; ++i){
+                int child = seen.lookupOrInsert(successors.states, i * layout.words);
+                if(child < 0)
+                    seen.setBlank(-child - 1, successors.blank[i]);
+            }
+        }
+
+        long[] states = new long[seen.size() * layout.words];
+        for(int handle = 0; handle < seen.size(); ++handle)
+            seen.copyState(handle, states, handle * layout.words);
+        return states;
+    }
+
+    /**
+     * Converts one of Korf's instances (goal 0 1 2 ... 15, open slot top left) to our goal (1 2 ... 15 0) by turning the
+     * board half a turn and relabeling tile t as 16 - t. Both change nothing to the number of moves needed.
+     * @param korf the 16 tiles separated by spaces
+     * @return the board
+     */
+    public static Board korfToBoard(String korf){
+
+        String[] tiles = korf.trim().split("\\s+");
+        StringBuilder board = new StringBuilder();
+        for(int position = 0; position < 16; ++position){
+            int tile = Integer.parseInt(tiles[15 - position]);
+            if(position > 0)
+                board.append(',');
+            board.append(tile == 0 ? 0 : 16 - tile);
+        }
+        return new Board(board.toString());
+    }
+}
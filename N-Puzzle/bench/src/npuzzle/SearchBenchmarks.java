@@ -0,0 +1,269 @@
+package npuzzle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The JMH benchmarks of the search hot paths. From the innermost loop outwards:
+ *      successors      SuccessorBuffer.generate on 3x3 and 4x4 boards (the move generation of every search)
+ *      heuristic       Heuristic.estimate of every heuristic on 4x4 boards (manhattan, linear, walking, pdb)
+ *      closedSet       ClosedSet.lookupOrInsert then find on 100000 distinct 4x4 boards
+ *      bucketQueue     BucketQueue push then pop of 100000 handles
+ *      solve...        whole solves: A* and the distance table on 3x3 boards, A* and IDA* on 4x4 boards
+ *
+ * One operation is one call of the method being measured (one board expanded, estimated, inserted or solved): every
+ * benchmark loops over its corpus (see Corpus) and declares how many operations that is. Every result goes to a
+ * Blackhole, so the JIT cannot drop the work. The solve benchmarks also count the boards they expanded, which JMH
+ * reports per second next to the solves ("nodes").
+ *
+ * Every benchmark runs in two forked JVMs, each with warm-up iterations first. Run "java -jar target/benchmarks.jar -h"
+ * for the options, ex: "-prof gc" for the bytes allocated per operation and the garbage collections.
+ *
+ * The main sources are in the default package, which JMH does not accept benchmarks in, so the build copies them into
+ * this package (see pom.xml).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SearchBenchmarks {
+
+    static final int BOARDS = 1000;         // Boards of the successor and heuristic corpora
+    static final int HANDLES = 100000;      // Boards of the closed set benchmark, handles of the bucket queue benchmark
+    static final int EIGHT_PUZZLES = 100;   // Boards of the 3x3 solve corpus
+    static final int RANDOM_WALKS = 20;     // Boards of the 4x4 solve corpus (40 random moves each)
+
+    /**
+     * Boards expanded by a solve benchmark, reported per second by JMH
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear(){
+            nodes = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Successors {
+
+        @Param({"3", "4"})
+        public int edgeLength;
+
+        BoardLayout layout;
+        SuccessorBuffer successors;
+        long[] states;
+        int[] blanks;
+
+        @Setup
+        public void setUp(){
+            layout = BoardLayout.forEdgeLength(edgeLength);
+            successors = new SuccessorBuffer(layout, new ManhattanHeuristic(layout));
+            states = Corpus.pack(edgeLength == 3 ? Corpus.eightPuzzles(BOARDS) : Corpus.randomWalks(edgeLength, BOARDS, 200, Corpus.SEED));
+            blanks = new int[BOARDS];
+            for(int i = 0; i < BOARDS; ++i)
+                blanks[i] = layout.blankPosition(states, i * layout.words);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Heuristics {
+
+        @Param({"manhattan", "linear", "walking", "pdb"})
+        public String heuristic;
+
+        BoardLayout layout;
+        Heuristic function;
+        long[] states;
+
+        @Setup
+        public void setUp(){
+            layout = BoardLayout.forEdgeLength(4);
+            function = HeuristicType.fromName(heuristic).create(layout);    // May build (or load) the pattern database
+            states = Corpus.pack(Corpus.randomWalks(4, BOARDS, 200, Corpus.SEED));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClosedSets {
+
+        BoardLayout layout;
+        ClosedSet closedSet;
+        long[] states;
+
+        @Setup
+        public void setUp(){
+            layout = BoardLayout.forEdgeLength(4);
+            closedSet = new ClosedSet(layout);
+            states = Corpus.distinctStates(4, HANDLES);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BucketQueues {
+
+        BucketQueue open;
+        int[] keys;
+
+        @Setup
+        public void setUp(){
+            open = new BucketQueue();
+            keys = new int[HANDLES];
+            Random random = new Random(Corpus.SEED);
+            for(int i = 0; i < HANDLES; ++i)
+                keys[i] = 40 + 2 * random.nextInt(8);   // A narrow band of f values, which keep their parity in this puzzle
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class EightPuzzleSolves {
+
+        @Param({"astar", "table"})
+        public String algorithm;
+
+        Solver solver;
+        List<Board> boards;
+
+        @Setup
+        public void setUp(){
+            BoardLayout layout = BoardLayout.forEdgeLength(3);
+            solver = Algorithm.fromName(algorithm).create(layout);
+            boards = Corpus.eightPuzzles(EIGHT_PUZZLES);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FifteenPuzzleSolves {
+
+        Solver solver;
+        List<Board> boards;
+
+        @Setup
+        public void setUp(){
+            BoardLayout layout = BoardLayout.forEdgeLength(4);
+            solver = Algorithm.ASTAR.create(layout, HeuristicType.LINEAR_CONFLICT.create(layout));
+            boards = Corpus.randomWalks(4, RANDOM_WALKS, 40, Corpus.SEED);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class KorfSolve {
+
+        Solver solver;
+        Board board;
+
+        @Setup
+        public void setUp(){
+            BoardLayout layout = BoardLayout.forEdgeLength(4);
+            solver = Algorithm.IDASTAR.create(layout, HeuristicType.PATTERN_DATABASE.create(layout));
+            board = Corpus.korfToBoard(Corpus.KORF_1);
+        }
+    }
+
+    /**
+     * Expands every board of the corpus once
+     */
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public void successors(Successors data, Blackhole blackhole){
+        for(int i = 0; i < BOARDS; ++i){
+            blackhole.consume(data.successors.generate(data.states, i * data.layout.words, data.blanks[i], 0, Constants.NO_MOVE));
+            blackhole.consume(data.successors.heuristic[0]);
+        }
+    }
+
+    /**
+     * Evaluates a heuristic from scratch on every board of the corpus
+     */
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public void heuristic(Heuristics data, Blackhole blackhole){
+        for(int i = 0; i < BOARDS; ++i)
+            blackhole.consume(data.function.estimate(data.states, i * data.layout.words));
+    }
+
+    /**
+     * Inserts distinct boards into a cleared closed set, then looks every one of them up
+     */
+    @Benchmark
+    @OperationsPerInvocation(2 * HANDLES)
+    public void closedSet(ClosedSets data, Blackhole blackhole){
+        data.closedSet.clear();     // Keeps the arrays grown by the first call, as a search reusing its closed set does
+        for(int i = 0; i < HANDLES; ++i)
+            blackhole.consume(data.closedSet.lookupOrInsert(data.states, i * data.layout.words));
+        for(int i = 0; i < HANDLES; ++i)
+            blackhole.consume(data.closedSet.find(data.states, i * data.layout.words));
+    }
+
+    /**
+     * Pushes handles with keys spread like the f values of an A* search, then pops them all
+     */
+    @Benchmark
+    @OperationsPerInvocation(2 * HANDLES)
+    public void bucketQueue(BucketQueues data, Blackhole blackhole){
+        for(int i = 0; i < HANDLES; ++i)
+            data.open.push(i, data.keys[i]);
+        while(!data.open.isEmpty())
+            blackhole.consume(data.open.pop());
+    }
+
+    /**
+     * Solves uniformly drawn 3x3 boards, with one solver reused from board to board
+     */
+    @Benchmark
+    @OperationsPerInvocation(EIGHT_PUZZLES)
+    public void solveEightPuzzles(EightPuzzleSolves data, Nodes nodes, Blackhole blackhole){
+        for(Board board : data.boards)
+            blackhole.consume(solve(data.solver, board, nodes));
+    }
+
+    /**
+     * Solves short random walks on 4x4 with A* and the linear conflict heuristic
+     */
+    @Benchmark
+    @OperationsPerInvocation(RANDOM_WALKS)
+    public void solveFifteenPuzzlesAStarLinear(FifteenPuzzleSolves data, Nodes nodes, Blackhole blackhole){
+        for(Board board : data.boards)
+            blackhole.consume(solve(data.solver, board, nodes));
+    }
+
+    /**
+     * Solves Korf's instance #1 (57 moves) with IDA* and the pattern databases
+     */
+    @Benchmark
+    public int solveKorf1IdaStarPdb(KorfSolve data, Nodes nodes){
+        return solve(data.solver, data.board, nodes);
+    }
+
+    /**
+     * Solves a board and counts the boards expanded
+     * @return the length of the solution
+     */
+    private static int solve(Solver solver, Board board, Nodes nodes){
+        SearchResult result = solver.solve(board);
+        nodes.nodes += result.getExpanded();
+        return result.getSolutionLength();
+    }
+}
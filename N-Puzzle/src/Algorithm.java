@@ -0,0 +1,101 @@
+/**
+ * The search algorithms a board can be solved with. Each one knows how to create its Solver for a given board size.
+ */
+public enum Algorithm {
+
+    ASTAR("astar") {            // A* with a closed set, fastest on boards that fit in memory (see SearchTree)
+        public Solver create(BoardLayout layout, Heuristic heuristic){
+            return new SearchTree(layout, heuristic);
+        }
+    },
+    IDASTAR("idastar") {        // Iterative deepening A*, uses memory proportional to the solution length only
+        public Solver create(BoardLayout layout, Heuristic heuristic){
+            return new IterativeDeepeningSearch(layout, heuristic);
+        }
+    },
+    HDASTAR("hdastar") {        // Parallel A*, the boards are split by hash between one worker thread per processor
+        public Solver create(BoardLayout layout, Heuristic heuristic){
+            return new ParallelSearchTree(layout, heuristic);
+        }
+    },
+    BIDIRECTIONAL_ASTAR("biastar") {    // A* from both the start board and the goal, until the two meet
+        public Solver create(BoardLayout layout, Heuristic heuristic){
+            return new BidirectionalSearch(layout, heuristic, BidirectionalSearch.Mode.ASTAR);
+        }
+    },
+    BIDIRECTIONAL_BFS("bibfs") {        // Breadth-first search from both sides, for small boards (the heuristic is not used)
+        public Solver create(BoardLayout layout, Heuristic heuristic){
+            return new BidirectionalSearch(layout, heuristic, BidirectionalSearch.Mode.BFS);
+        }
+    },
+    PARTIAL_EXPANSION_ASTAR("epeastar") {   // A* that only generates the children with the lowest f, less memory (see PartialExpansionSearch)
+        public Solver create(BoardLayout layout, Heuristic heuristic){
+            return new PartialExpansionSearch(layout, heuristic);
+        }
+    },
+    WEIGHTED_ASTAR("wastar") {  // A* trusting the heuristic w times more, fast and at most w times longer than optimal (see WeightedSearch)
+        public Solver create(BoardLayout layout, Heuristic heuristic){
+            return new WeightedSearch(layout, heuristic, WeightedSearch.defaultWeight());
+        }
+    },
+    ANYTIME_ASTAR("arastar") {  // Weighted A* with a lower weight on every run, improving its solution until a deadline or optimal
+        public Solver create(BoardLayout layout, Heuristic heuristic){
+            return new WeightedSearch(layout, heuristic, WeightedSearch.defaultWeight(), WeightedSearch.DEFAULT_WEIGHT_STEP, null);
+        }
+    },
+    FRONTIER("frontier") {      // Breadth-first IDA* that only keeps the current layers of boards (see FrontierSearch)
+        public Solver create(BoardLayout layout, Heuristic heuristic){
+            return new FrontierSearch(layout, heuristic);
+        }
+    },
+    TABLE("table") {            // Walks down the precomputed distance table of every 3x3 board (3x3 only, no search at all)
+        public Solver create(BoardLayout layout, Heuristic heuristic){
+            if(layout.edgeLength != 3)
+                throw new IllegalArgumentException("The distance table only covers 3x3 boards");
+            return EightPuzzleTable.getInstance();
+        }
+    };
+
+    private final String name;  // Name used to pick the algorithm on the command line
+
+    Algorithm(String name){
+        this.name = name;
+    }
+
+    /**
+     * Creates a solver for boards of a given size, guided by the Manhattan distance
+     * @param layout the layout of the boards to solve
+     * @return a new solver, which may be reused for many boards of that size
+     */
+    public Solver create(BoardLayout layout){
+        return create(layout, new ManhattanHeuristic(layout));
+    }
+
+    /**
+     * Creates a solver for boards of a given size
+     * @param layout the layout of the boards to solve
+     * @param heuristic the heuristic guiding the search (see HeuristicType)
+     * @return a new solver, which may be reused for many boards of that size
+     * @throws IllegalArgumentException if the algorithm cannot solve boards of that size ("table" is 3x3 only), or its
+     *                                  settings are wrong (ex: a -Dnpuzzle.weight below 1 for "wastar" and "arastar")
+     */
+    public abstract Solver create(BoardLayout layout, Heuristic heuristic);
+
+    /**
+     * Finds an algorithm by its command line name
+     * @param name the name (ex: "astar", "idastar", "hdastar", "biastar", "bibfs", "epeastar", "wastar", "arastar", "frontier", "table"), case does not matter
+     * @return the algorithm
+     * @throws IllegalArgumentException if no algorithm has that name
+     */
+    public static Algorithm fromName(String name){
+
+        for(Algorithm algorithm : values())
+            if(algorithm.name.equalsIgnoreCase(name))
+                return algorithm;
+        throw new IllegalArgumentException("Unknown algorithm: " + name);
+    }
+
+    public String toString(){
+        return name;
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solves boards in the background: solve() returns at once with a CompletableFuture of the result, so a caller with a
+ * time budget (ex: a service answering requests) is never blocked by a hard board.
+ *
+ * Every solve has its own limits (see SearchLimits): a deadline, a budget of boards expanded and of memory. A search that
+ * reaches one of them stops and completes its future normally, with the reason in SearchResult.getStatus() and, if
+ * partial results were asked for, the moves to the closest board it reached. Cancelling the future (future.cancel)
+ * cancels the search too: the search notices it at its next check of its limits and frees its thread.
+ *
+ * Like the BatchSolver, every thread of the executor keeps its own solver per board size, and reuses it for every board.
+ *
+ * Example:
+ *      AsyncSolver solver = new AsyncSolver(Algorithm.IDASTAR, HeuristicType.PATTERN_DATABASE, 4);
+ *      solver.solve(board, new SearchLimits().timeout(100, TimeUnit.MILLISECONDS).partialResults(true))
+ *            .thenAccept(result -> System.out.println(result.getStatus() + " " + result.getMovesAsString()));
+ */
+public class AsyncSolver implements AutoCloseable {
+
+    private final Algorithm algorithm;
+    private final HeuristicType heuristic;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;          // The executor, if this solver created it (shut down by close)
+    private final ThreadLocal<Solver[]> solvers;        // Solver of each executor thread, per edge length
+
+    /**
+     * Creates a solver running on its own threads (daemon threads, so they never keep the program alive)
+     * @param algorithm the algorithm to solve the boards with
+     * @param heuristic the heuristic guiding it
+     * @param threads the number of boards solved at the same time
+     */
+    public AsyncSolver(Algorithm algorithm, HeuristicType heuristic, int threads){
+        this(algorithm, heuristic, Executors.newFixedThreadPool(threads, new SolverThreadFactory()), true);
+    }
+
+    /**
+     * Creates a solver running on the caller's executor (left running by close)
+     * @param algorithm the algorithm to solve the boards with
+     * @param heuristic the heuristic guiding it
+     * @param executor runs the solves
+     */
+    public AsyncSolver(Algorithm algorithm, HeuristicType heuristic, Executor executor){
+        this(algorithm, heuristic, executor, false);
+    }
+
+    private AsyncSolver(Algorithm algorithm, HeuristicType heuristic, Executor executor, boolean ownsExecutor){
+        this.algorithm = algorithm;
+        this.heuristic = heuristic;
+        this.executor = executor;
+        this.ownExecutor = ownsExecutor ? (ExecutorService) executor : null;
+        this.solvers = ThreadLocal.withInitial(() -> new Solver[BoardLayout.MAX_EDGE_LENGTH + 1]);
+    }
+
+    /**
+     * Solves a board with no limits
+     * @param startBoard the board to solve (not modified)
+     * @return the future result
+     */
+    public CompletableFuture<SearchResult> solve(Board startBoard){
+        return solve(startBoard, new SearchLimits());
+    }
+
+    /**
+     * Solves a board in the background
+     * @param startBoard the board to solve (not modified)
+     * @param limits the limits of the search (a new one per solve, it is cancelled along with the future)
+     * @return the future result. It completes exceptionally only if the search itself fails (ex: a board size the
+     *         algorithm does not handle), never because a limit was reached
+     */
+    public CompletableFuture<SearchResult> solve(Board startBoard, SearchLimits limits){
+
+        CompletableFuture<SearchResult> future = CompletableFuture.supplyAsync(() -> {
+            if(limits.isCancelled())        // Cancelled while it waited for a thread
+                return new SearchResult(SearchResult.Status.CANCELLED, null, new SearchMetrics());
+            return solverFor(startBoard.getLayout()).solve(startBoard, limits);
+        }, executor);
+        future.whenComplete((result, error) -> {
+            if(future.isCancelled())
+                limits.cancel();
+        });
+        return future;
+    }
+
+    /**
+     * Grabs the solver of the calling thread for a board size, creating it the first time
+     */
+    private Solver solverFor(BoardLayout layout){
+
+        Solver[] threadSolvers = solvers.get();
+        if(threadSolvers[layout.edgeLength] == null)
+            threadSolvers[layout.edgeLength] = algorithm.create(layout, heuristic.create(layout));
+        return threadSolvers[layout.edgeLength];
+    }
+
+    /**
+     * Stops the threads of this solver once the solves already started are done (nothing if it runs on the caller's executor)
+     */
+    public void close(){
+        if(ownExecutor != null)
+            ownExecutor.shutdown();
+    }
+
+    /**
+     * Names the threads of a solver and makes them daemon threads
+     */
+    private static final class SolverThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger POOLS = new AtomicInteger();
+
+        private final int pool = POOLS.incrementAndGet();
+        private final AtomicInteger threads = new AtomicInteger();
+
+        public Thread newThread(Runnable task){
+            Thread thread = new Thread(task, "solver-" + pool + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Solves many boards at once, on every core. Boards are read one per line from a file or a stream, each one is solved by
+ * a task of a work-stealing pool (ForkJoinPool), and one result line per board is written in the order the boards were read.
+ *
+ * Every worker thread keeps its own solver per board size (see Algorithm.create), so the closed sets, queues and other
+ * scratch structures of a search are allocated once per thread and reused for every board it solves. The heuristic is
+ * shared between threads: heuristics keep no per board state, and their tables are built only once. So is a SolutionCache:
+ * a board (or its reflection) that comes up again is answered without searching.
+ *
+ * Only a window of boards is in flight at a time, so a file of a million boards never has to fit in memory: once the
+ * window is full, the oldest board's result is waited for and written before the next board is read.
+ *
+ * Result line (tab separated):  board  length  moves  expanded  milliseconds
+ *      length is -1 and moves is "-" for impossible boards; a line that is not a valid board gets "error" and the reason.
+ * Empty lines and lines starting with # are skipped.
+ *
+ * The search counters of every board (see SearchStatistics) can be watched over JMX while the batch runs, and are printed
+ * with the other totals at the end. With -Dnpuzzle.metrics.file=<path> they are also written there in the Prometheus text format.
+ *
+ * Usage: java TilesDriver batch <file, or - for standard input> [algorithm] [heuristic] [threads]
+ */
+public class BatchSolver {
+
+    private static final int WINDOW_PER_THREAD = 256;   // Boards in flight per worker thread
+
+    private final Algorithm algorithm;
+    private final HeuristicType heuristic;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Solver[]> solvers;        // Solver of each worker thread, per edge length
+    private final SolutionCache cache;                  // Solutions shared by every worker thread
+
+    private long boards;            // Boards read so far
+    private long solved;            // Boards solved so far
+
+    /**
+     * @param algorithm the algorithm to solve the boards with
+     * @param heuristic the heuristic guiding it
+     * @param threads the number of worker threads
+     */
+    public BatchSolver(Algorithm algorithm, HeuristicType heuristic, int threads){
+        this.algorithm = algorithm;
+        this.heuristic = heuristic;
+        this.pool = new ForkJoinPool(threads);
+        this.solvers = ThreadLocal.withInitial(() -> new Solver[BoardLayout.MAX_EDGE_LENGTH + 1]);
+        this.cache = new SolutionCache(Constants.SOLUTION_CACHE_SIZE);
+    }
+
+    public static void main(String[] args){
+
+        if(args.length < 1){
+            System.err.println("Usage: java TilesDriver batch <file, or - for standard input> [algorithm] [heuristic] [threads]");
+            System.exit(2);
+        }
+        Algorithm algorithm = args.length > 1 ? Algorithm.fromName(args[1]) : Algorithm.ASTAR;
+        HeuristicType heuristic = args.length > 2 ? HeuristicType.fromName(args[2]) : HeuristicType.MANHATTAN;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        BatchSolver batch = new BatchSolver(algorithm, heuristic, threads);
+        SearchStatistics statistics = SearchStatistics.getInstance();
+        statistics.register();
+        long start = System.nanoTime();
+        try(BufferedReader in = args[0].equals("-") ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                                                    : Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8);
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))){
+            batch.run(in, out);
+        }
+        catch(IOException e){
+            System.err.println("Batch failed: " + e);
+            System.exit(1);
+        }
+        finally{
+            batch.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf(Locale.ROOT, "%d boards (%d solved) in %.2f s with %s and %s on %d threads, %.1f boards/s%n",
+                          batch.getBoards(), batch.getSolved(), seconds, algorithm, heuristic, threads, batch.getBoards() / seconds);
+        System.err.println(batch.getCache());
+        System.err.println(statistics);
+
+        String metricsFile = System.getProperty("npuzzle.metrics.file");
+        if(metricsFile != null){
+            try{
+                Files.write(Paths.get(metricsFile), statistics.toPrometheus().getBytes(StandardCharsets.UTF_8));
+            }
+            catch(IOException e){
+                System.err.println("Could not write the metrics to " + metricsFile + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Solves every board of a stream and writes the results in input order
+     * @param in the boards, one per line
+     * @param out receives one result line per board
+     * @throws IOException if reading or writing fails
+     */
+    public void run(BufferedReader in, Writer out) throws IOException {
+
+        int window = WINDOW_PER_THREAD * pool.getParallelism();
+        ArrayDeque<ForkJoinTask<String>> inFlight = new ArrayDeque<>();     // Tasks in input order
+
+        String line;
+        while((line = in.readLine()) != null){
+
+            String board = line.trim();
+            if(board.isEmpty() || board.startsWith("#"))
+                continue;
+
+            if(inFlight.size() == window)
+                out.write(inFlight.poll().join());
+            inFlight.add(pool.submit(() -> solveLine(board)));
+            boards++;
+        }
+        while(!inFlight.isEmpty())
+            out.write(inFlight.poll().join());
+        out.flush();
+    }
+
+    /**
+     * Solves one board on the calling worker thread, with that thread's solver
+     * @param board the board string
+     * @return the result line, ending with a new line
+     */
+    private String solveLine(String board){
+
+        try{
+            TilesDriver.checkBoardString(board);
+        }
+        catch(NumberFormatException e){
+            return board + "\terror\t" + e.getMessage() + "\n";
+        }
+
+        Board startBoard = new Board(board);
+        BoardLayout layout = startBoard.getLayout();
+        Solver[] threadSolvers = solvers.get();
+        if(threadSolvers[layout.edgeLength] == null)
+            threadSolvers[layout.edgeLength] = new CachingSolver(algorithm.create(layout, heuristic.create(layout)), cache);
+
+        long start = System.nanoTime();
+        SearchResult result = threadSolvers[layout.edgeLength].solve(startBoard);
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        if(result.isSolved())
+            countSolved();
+        return board + "\t" + result.getSolutionLength() + "\t" + (result.isSolved() ? result.getMovesAsString() : "-") + "\t"
+               + result.getExpanded() + "\t" + String.format(Locale.ROOT, "%.3f", millis) + "\n";
+    }
+
+    private synchronized void countSolved(){
+        solved++;
+    }
+
+    public SolutionCache getCache(){
+        return cache;
+    }
+
+    public long getBoards(){
+        return boards;
+    }
+
+    public synchronized long getSolved(){
+        return solved;
+    }
+
+    /**
+     * Stops the worker threads once the running tasks are done
+     */
+    public void shutdown(){
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * Our bidirectional search. Two searches run at the same time: one forward from the start board toward the goal, and one
+ * backward from the goal toward the start board (moves can always be undone, so the backward search uses the same moves).
+ * Each one has its own bucket queue and closed set. Every child one side adds or improves is looked up in the closed set of
+ * the other side, and if it is there the two halves form a solution: the shortest one found so far is kept.
+ * Since each side only has to go about half the depth, far fewer boards are visited than by a single search.
+ *
+ * Two modes are offered:
+ *      BFS     breadth-first on both sides (no heuristic), the side with the smaller queue expands next.
+ *              Any solution not found yet still has a board in both queues, one move apart at best, so none can be shorter
+ *              than gmin(forward) + gmin(backward) + 1. Once the best solution is no longer, it is optimal.
+ *      ASTAR   A* on both sides (front-to-end): the forward side uses the search heuristic toward the goal, the backward side
+ *              the Manhattan distance toward the start board. A solution not found yet is no shorter than the lowest f of
+ *              either queue, so the search stops once the best solution is no longer than the higher of the two.
+ *
+ * The solution is rebuilt by splicing the two parent chains at the meeting board: the forward chain gives the moves from
+ * the start board to it, and the backward chain (with every move reversed) the moves from it to the goal.
+ */
+public class BidirectionalSearch implements Solver {
+
+    /**
+     * How each side of the search orders its boards
+     */
+    public enum Mode { BFS, ASTAR }
+
+    private static final Heuristic NO_HEURISTIC = new Heuristic() {     // Used by both sides of the breadth-first mode
+        public int estimate(long[] state, int offset){
+            return 0;
+        }
+
+        public int update(int heuristic, long[] state, int offset, int tile, int from, int to){
+            return 0;
+        }
+    };
+
+    private final BoardLayout layout;
+    private final Mode mode;
+    private final Frontier forward;
+    private final Frontier backward;
+    private final SearchMetrics metrics = new SearchMetrics();     // Counters of both sides, summed once the search ends
+    private int bestCost;           // Length of the shortest solution found so far (Integer.MAX_VALUE if none)
+    private int meetingForward;     // Handle of the meeting board of that solution in the forward closed set
+    private int meetingBackward;    // Handle of the same board in the backward closed set
+
+    /**
+     * @param layout the layout of the boards to solve
+     * @param heuristic the heuristic of the forward side in ASTAR mode (ignored in BFS mode)
+     * @param mode how each side orders its boards
+     */
+    public BidirectionalSearch(BoardLayout layout, Heuristic heuristic, Mode mode){
+        this.layout = layout;
+        this.mode = mode;
+        forward = new Frontier(mode == Mode.BFS ? NO_HEURISTIC : heuristic);
+        backward = new Frontier(NO_HEURISTIC);
+    }
+
+    /**
+     * Solves a board with a bidirectional search. Boards that fail the parity check (see Board.hasSolution) are rejected right away.
+     * @param startBoard the board to solve (not modified)
+     * @param limits the limits of the search, checked against both sides together
+     * @return the optimal solution (or the path to the closest board the forward side reached if a limit stopped the
+     *         search) and the counters of both sides
+     */
+    public SearchResult solve(Board startBoard, SearchLimits limits){
+
+        metrics.start();
+        if(!startBoard.hasSolution())
+            return new SearchResult(false, null, metrics.finish(-1));
+
+        long[] state = startBoard.getBoardState();
+        if(mode == Mode.ASTAR)
+            backward.successors = new SuccessorBuffer(layout, new ManhattanHeuristic(layout, state, 0));
+        bestCost = Integer.MAX_VALUE;
+        forward.start(state, startBoard.getFreeSpacePosition());
+        layout.copyGoal(state, 0);
+        backward.start(state, layout.boardSize - 1);
+        if(forward.closedSet.find(state, 0) >= 0)     // The start board is the goal
+            meet(0, 0, 0);
+
+        while(!forward.open.isEmpty() && !backward.open.isEmpty()){
+
+            int forwardMin = forward.open.minKey();
+            int backwardMin = backward.open.minKey();
+            int lowerBound = mode == Mode.BFS ? forwardMin + backwardMin + 1 : Math.max(forwardMin, backwardMin);
+            if(bestCost <= lowerBound)
+                break;
+
+            if(forward.open.size() <= backward.open.size())
+                forward.expandNext(backward, true);
+            else
+                backward.expandNext(forward, false);
+
+            long expanded = forward.metrics.expanded + backward.metrics.expanded;
+            if(SearchLimits.isCheckDue(expanded)){
+                SearchResult.Status stopped = limits.check(expanded, forward.closedSet.memoryUsage() + backward.closedSet.memoryUsage());
+                if(stopped != null){
+                    byte[] moves = limits.isPartialResults() ? closestForwardPath() : null;
+                    return new SearchResult(stopped, moves, finishMetrics(-1));
+                }
+            }
+        }
+
+        return new SearchResult(true, splicePath(), finishMetrics(bestCost));
+    }
+
+    /**
+     * Sums the counters of both sides
+     * @param solutionLength the moves of the solution, or -1 if none was found
+     * @return the counters of the search (see SearchMetrics.finish)
+     */
+    private SearchMetrics finishMetrics(int solutionLength){
+
+        metrics.add(forward.metrics);
+        metrics.add(backward.metrics);
+        metrics.peakClosed = forward.closedSet.size() + backward.closedSet.size();
+        metrics.iterations = 1;
+        return metrics.finish(solutionLength);
+    }
+
+    /**
+     * Builds the moves to the board of the forward side closest to the goal. The Manhattan distance is used to compare
+     * boards, since the breadth-first mode keeps no heuristic values.
+     */
+    private byte[] closestForwardPath(){
+
+        Heuristic distance = new ManhattanHeuristic(layout);
+        long[] state = new long[layout.words];
+        int bestHandle = 0;
+        int bestValue = Integer.MAX_VALUE;
+        for(int handle = 0; handle < forward.closedSet.size(); ++handle){
+            forward.closedSet.copyState(handle, state, 0);
+            int value = distance.estimate(state, 0);
+            if(value < bestValue){
+                bestValue = value;
+                bestHandle = handle;
+            }
+        }
+
+        byte[] moves = new byte[forward.closedSet.getCost(bestHandle)];
+        for(int handle = bestHandle, i = moves.length - 1; i >= 0; --i){
+            moves[i] = (byte) forward.closedSet.getMove(handle);
+            handle = forward.closedSet.getParent(handle);
+        }
+        return moves;
+    }
+
+    /**
+     * Keeps a solution through a board seen by both sides if it is the shortest so far
+     */
+    private void meet(int forwardHandle, int backwardHandle, int cost){
+        if(cost < bestCost){
+            bestCost = cost;
+            meetingForward = forwardHandle;
+            meetingBackward = backwardHandle;
+        }
+    }
+
+    /**
+     * Builds the moves of the best solution: start board to meeting board from the forward chain, then meeting board to
+     * goal from the backward chain with every move reversed
+     */
+    private byte[] splicePath(){
+
+        byte[] moves = new byte[bestCost];
+        int length = forward.closedSet.getCost(meetingForward);
+
+        for(int handle = meetingForward, i = length - 1; i >= 0; --i){
+            moves[i] = (byte) forward.closedSet.getMove(handle);
+            handle = forward.closedSet.getParent(handle);
+        }
+        for(int handle = meetingBackward, i = length; i < bestCost; ++i){
+            moves[i] = (byte) Constants.opposite(backward.closedSet.getMove(handle));
+            handle = backward.closedSet.getParent(handle);
+        }
+        return moves;
+    }
+
+    /**
+     * One side of the search: a queue, a closed set and the buffer its children are generated into
+     */
+    private final class Frontier {
+
+        final ClosedSet closedSet = new ClosedSet(layout);
+        final BucketQueue open = new BucketQueue();
+        final long[] parentState = new long[layout.words];
+        SuccessorBuffer successors;     // Also holds the heuristic of the side (replaced per board on the backward A* side)
+        final SearchMetrics metrics = new SearchMetrics();     // Counters of this side
+
+        Frontier(Heuristic heuristic){
+            successors = new SuccessorBuffer(layout, heuristic);
+        }
+
+        /**
+         * Clears the side and adds its first board
+         */
+        void start(long[] state, int blank){
+
+            closedSet.clear();
+            open.clear();
+            metrics.start();
+            int handle = -closedSet.lookupOrInsert(state, 0) - 1;
+            closedSet.setHeuristic(handle, successors.heuristicFunction.estimate(state, 0));
+            closedSet.setBlank(handle, blank);
+            open.push(handle, closedSet.getHeuristic(handle));
+        }
+
+        /**
+         * Expands the best board of this side (same as SearchTree), and looks every child added or improved up on the other side
+         * @param other the other side of the search
+         * @param isForward true if this is the forward side
+         */
+        void expandNext(Frontier other, boolean isForward){
+
+            int totalCost = open.minKey();
+            int currentParent = open.pop();
+            int pathCost = closedSet.getCost(currentParent);
+            int heuristicValue = closedSet.getHeuristic(currentParent);
+            if(pathCost + heuristicValue != totalCost){     // Stale entry, a shorter path was found since
+                metrics.stalePops++;
+                return;
+            }
+
+            closedSet.copyState(currentParent, parentState, 0);
+            successors.generate(parentState, 0, closedSet.getBlank(currentParent), heuristicValue, closedSet.getMove(currentParent));
+            metrics.expanded++;
+            metrics.generated += successors.count;
+
+            for(int i = 0; i < successors.count; ++i){
+
+                int offset = i * layout.words;
+                int cost = pathCost + 1;
+                int child = closedSet.lookupOrInsert(successors.states, offset);
+
+                if(child < 0){
+                    child = -child - 1;
+                    closedSet.setHeuristic(child, successors.heuristic[i]);
+                    closedSet.setBlank(child, successors.blank[i]);
+                }
+                else if(cost >= closedSet.getCost(child)){
+                    metrics.duplicates++;
+                    continue;
+                }
+                else
+                    metrics.reopened++;
+                closedSet.setCost(child, cost);
+                closedSet.setParent(child, currentParent);
+                closedSet.setMove(child, successors.move[i]);
+                open.push(child, cost + closedSet.getHeuristic(child));
+
+                int match = other.closedSet.find(successors.states, offset);
+                if(match >= 0){
+                    int total = cost + other.closedSet.getCost(match);
+                    if(isForward)
+                        meet(child, match, total);
+                    else
+                        meet(match, child, total);
+                }
+            }
+            if(open.size() > metrics.peakOpen)
+                metrics.peakOpen = open.size();
+        }
+    }
+}
@@ -4,25 +4,41 @@ import java.util.Random;
 /**
  * One of our main classes is the Board class. The board class holds essentially most of the information for this project.
  * In short, the Board class helps us parse the current board as a string, computes the heuristic, and finds valid moves.
+ * A board can be of any N x N size (3x3 for the 8-puzzle, 4x4 for the 15-puzzle, ...), its BoardLayout tells us which.
  * The board class takes 2 constructors.
  *      The first constructor is for when the user inputs 1 at the beginning of the program (to randomize)
  *      The second constructor is for when the user inputs 2 which is to provide their own board as a string
  *
- *      Moreover, the 2nd constructor is used to create new boards in our A* algorithm and add to our queue and our hashmap
+ *      Moreover, a 3rd constructor is used to create boards from packed states in our A* algorithm
+ *
+ * The board is stored packed into longs (see BoardLayout): 4 bits per tile up to 4x4, 8 bits per tile beyond.
+ * Strings are only used at the edges (user input and printing).
  */
 public class Board {
 
     private ArrayList<Integer> arrayOfNumbers = new ArrayList<>();  // Used to help with the randomization portion of the class
     private int freeSpaceXPosition; // Holds the open slot x coordinate
     private int freeSpaceYPosition; // Holds the open slot y coordinate
-    private int[][] currentBoard = new int[Constants.EDGE_LENGTH][Constants.EDGE_LENGTH]; // This is where our Board is stored. In a 2D array
+    private final BoardLayout layout;   // Holds the size of the board and how it is packed
+    private final long[] currentBoard;  // This is where our Board is stored. Packed, see BoardLayout
 
     /**
-     * This is the constructor used to help randomize our board
+     * This is the constructor used to help randomize our board (of the default size used by the game)
      */
     protected Board(){
+        this(Constants.EDGE_LENGTH);
+    }
+
+    /**
+     * This is the constructor used to help randomize a board of any size
+     * @param edgeLength number of rows (and columns) of the board
+     */
+    protected Board(int edgeLength){
+
+        layout = BoardLayout.forEdgeLength(edgeLength);
+        currentBoard = new long[layout.words];
 
-        for(int i = 0; i < Constants.BOARD_SIZE; i++)
+        for(int i = 0; i < layout.boardSize; i++)
             arrayOfNumbers.add(i);
 
 
@@ -31,31 +47,35 @@ public class Board {
         Collections.shuffle(arrayOfNumbers, randomGenerator);  // Shuffle the numbers based in the array based on the seed
 
         int count = 0;
-        for(int i = 0; i < Constants.EDGE_LENGTH; ++i){
-            for(int j = 0; j < Constants.EDGE_LENGTH; ++j){
-                currentBoard[i][j] = arrayOfNumbers.get(count);
+        for(int i = 0; i < layout.edgeLength; ++i){
+            for(int j = 0; j < layout.edgeLength; ++j){
+                setTile(i, j, arrayOfNumbers.get(count));
                 count++;
 
                 // Set the grid position of the slot that is opened
-                if(currentBoard[i][j] == 0){
+                if(getTile(i, j) == 0){
                     setFreeSpacePosition(i, j);
                 }
             }
         }
     }
     /**
-     * This is our constructor that helps create our board based off of the user input and/or our A* algorithm
-     * @param startingState
+     * This is our constructor that helps create our board based off of the user input.
+     * The size of the board is taken from the number of tiles in the string.
+     * @param startingState either one digit per tile (ex: "123456780") or tiles separated by commas or spaces (ex: "1,2,3,...,15,0")
      */
     public Board(String startingState){
 
-        char[] ch = startingState.toCharArray();
+        int[] tiles = parseTiles(startingState);
+        layout = BoardLayout.forBoardSize(tiles.length);
+        currentBoard = new long[layout.words];
+
         int indexCounter = 0;
-        for(int i = 0; i < Constants.EDGE_LENGTH; ++i){
-            for(int j = 0; j < Constants.EDGE_LENGTH; ++j){
-                currentBoard[i][j] = ch[indexCounter] - '0';
+        for(int i = 0; i < layout.edgeLength; ++i){
+            for(int j = 0; j < layout.edgeLength; ++j){
+                setTile(i, j, tiles[indexCounter]);
                 // Set the grid position of the slot that is opened
-                if(currentBoard[i][j] == 0){
+                if(getTile(i, j) == 0){
                     setFreeSpacePosition(i, j);
                 }
                 indexCounter++;
@@ -63,6 +83,92 @@ public class Board {
         }
     }
 
+    /**
+     * This constructor rebuilds a board straight from its packed state (used by our A* algorithm, no string parsing needed)
+     * @param layout the layout the state was packed with
+     * @param packedState array holding the packed state
+     * @param offset index of the first word of the state in the array
+     */
+    public Board(BoardLayout layout, long[] packedState, int offset){
+
+        this.layout = layout;
+        currentBoard = Arrays.copyOfRange(packedState, offset, offset + layout.words);
+        int position = layout.blankPosition(currentBoard, 0);
+        setFreeSpacePosition(position / layout.edgeLength, position % layout.edgeLength);
+    }
+
+    /**
+     * Splits a board string into its tile numbers.
+     * Strings without separators hold one digit per tile, otherwise tiles are separated by commas and/or spaces.
+     * @param boardString the board as a string
+     * @return the tile numbers in row-major order
+     * @throws NumberFormatException if a tile is not a number
+     */
+    public static int[] parseTiles(String boardString){
+
+        String trimmed = boardString.trim();
+        if(trimmed.indexOf(',') < 0 && trimmed.indexOf(' ') < 0){
+            int[] tiles = new int[trimmed.length()];
+            for(int i = 0; i < tiles.length; ++i){
+                if(!Character.isDigit(trimmed.charAt(i)))
+                    throw new NumberFormatException("You did not enter a valid digit.");
+                tiles[i] = trimmed.charAt(i) - '0';
+            }
+            return tiles;
+        }
+
+        String[] tokens = trimmed.split("[,\\s]+");
+        int[] tiles = new int[tokens.length];
+        for(int i = 0; i < tokens.length; ++i)
+            tiles[i] = Integer.parseInt(tokens[i]);
+        return tiles;
+    }
+
+    /**
+     * Grabs the tile at the (x,y) coordinate on our grid
+     * @param x holds the x coordinate position on our 2D Grid
+     * @param y holds the y coordinate position on our 2D Grid
+     * @return the tile number (0 is the open slot)
+     */
+    public int getTile(int x, int y){
+        return layout.tileAt(currentBoard, 0, x * layout.edgeLength + y);
+    }
+
+    /**
+     * Stores a tile at the (x,y) coordinate on our grid
+     * @param x holds the x coordinate position on our 2D Grid
+     * @param y holds the y coordinate position on our 2D Grid
+     * @param tile the tile number to store
+     */
+    private void setTile(int x, int y, int tile){
+        layout.setTile(currentBoard, 0, x * layout.edgeLength + y, tile);
+    }
+
+    /**
+     * Grabs the layout (size and packing) of the board
+     * @return the board layout
+     */
+    public BoardLayout getLayout(){
+        return layout;
+    }
+
+    /**
+     * Copies the packed state of the board we are evaluating
+     * @param state array receiving the packed state (layout.words longs)
+     * @param offset index of the first word of the state in the array
+     */
+    public void copyBoardState(long[] state, int offset){
+        System.arraycopy(currentBoard, 0, state, offset, layout.words);
+    }
+
+    /**
+     * Grabs a copy of the packed state of the board we are evaluating
+     * @return returns the packed board state
+     */
+    public long[] getBoardState(){
+        return currentBoard.clone();
+    }
+
     /**
      * A setter that sets the zero position (open slot) for our board state
      * @param x holds the x coordinate position on our 2D Grid
@@ -92,16 +198,10 @@ public class Board {
 
     /**
      *  Grabs the board we are evaluating and converts it into a string
-     * @return returns a string of the boardState (ex: "345671280")
+     * @return returns a string of the boardState (ex: "345671280", or "1,2,3,...,15,0" for larger boards)
      */
     public String getBoardAsString(){
-
-        String boardAsString = "";
-        for(int i = 0; i < Constants.EDGE_LENGTH; ++i)
-            for(int j = 0; j < Constants.EDGE_LENGTH; ++j)
-                    boardAsString += Integer.toString(currentBoard[i][j]);
-
-        return boardAsString;
+        return layout.toString(currentBoard, 0);
     }
 
     /**
@@ -110,13 +210,17 @@ public class Board {
      */
     public void displayBoard(){
 
-        for(int i = 0; i < Constants.EDGE_LENGTH; ++i) {
+        int width = Integer.toString(layout.boardSize - 1).length();   // Pads tiles so the columns line up on larger boards
+        String blank = String.format("%" + (width + 1) + "s", "");
+        String format = "%" + width + "d ";
+
+        for(int i = 0; i < layout.edgeLength; ++i) {
             System.out.print("   ");
-            for (int j = 0; j < Constants.EDGE_LENGTH; ++j) {
-                if(currentBoard[i][j] != 0)
-                    System.out.print(currentBoard[i][j] + " ");
+            for (int j = 0; j < layout.edgeLength; ++j) {
+                if(getTile(i, j) != 0)
+                    System.out.print(String.format(format, getTile(i, j)));
                 else
-                    System.out.print("  ");
+                    System.out.print(blank);
             }
             System.out.println("");
         }
@@ -129,28 +233,46 @@ public class Board {
     public int computeHeuristic(){
 
         int totalHeuristic = 0;
-        int targetX;
-        int targetY;
 
-        for(int i = 0; i < Constants.EDGE_LENGTH; ++i) {
-            for (int j = 0; j < Constants.EDGE_LENGTH; ++j) {
+        // The distance of every tile from the position it must sit in is precomputed in our layout.
+        // The open slot (zero) is not counted, which keeps the heuristic from overestimating the moves left.
+        for(int position = 0; position < layout.boardSize; ++position)
+            totalHeuristic += layout.distance(layout.tileAt(currentBoard, 0, position), position);
 
-                // Finds the target (x,y) or (i,j) position the current number must sit in.
-                if(currentBoard[i][j] != 0) {
-                    targetX = (currentBoard[i][j] - 1) / Constants.EDGE_LENGTH;
-                    targetY = (currentBoard[i][j] - 1) % Constants.EDGE_LENGTH;
-                }
-                // Case if the number being evaluated is 0 consider the bottom right corner of grid to be the position it needs to be in
-                else{
-                    targetX = Constants.EDGE_LENGTH-1;
-                    targetY = Constants.EDGE_LENGTH-1;
-                }
-                totalHeuristic +=  Math.abs(i-targetX) + Math.abs(j-targetY);
-            }
-        }
         return totalHeuristic;
     }
 
+    /**
+     * Computes the heuristic value of the current board with any heuristic (computeHeuristic() is the Manhattan distance)
+     * @param heuristic Holds the heuristic to evaluate the board with
+     * @return the heuristic value of the board
+     */
+    public int computeHeuristic(Heuristic heuristic){
+        return heuristic.estimate(currentBoard, 0);
+    }
+
+    /**
+     * Updates a heuristic value after a move made with makeMove (see Heuristic.update)
+     * @param heuristic Holds the heuristic the value was computed with
+     * @param value Holds the heuristic value of the board before the move
+     * @param tile Holds the tile that was moved
+     * @param from Holds the position the tile moved from
+     * @param to Holds the position the tile moved to
+     * @return the heuristic value of the current board
+     */
+    public int heuristicAfterMove(Heuristic heuristic, int value, int tile, int from, int to){
+        return heuristic.update(value, currentBoard, 0, tile, from, to);
+    }
+
+    /**
+     * Checks to see if the goal can be reached from this board at all (see BoardLayout.hasSolution).
+     * This takes microseconds, compared to exhausting half the state space in our A* algorithm.
+     * @return true if the board has a solution, false otherwise
+     */
+    public boolean hasSolution(){
+        return layout.hasSolution(currentBoard, 0);
+    }
+
     /**
      *
      * @param x Checks to see if the x coordinate passed in is indeed where our open slot (zero in our case) is.
@@ -176,9 +298,9 @@ public class Board {
     public void swap(int currX, int currY, int zeroX, int zeroY){
 
         int tmp;
-        tmp = currentBoard[currX][currY];
-        currentBoard[currX][currY] = currentBoard[zeroX][zeroY];
-        currentBoard[zeroX][zeroY] = tmp;
+        tmp = getTile(currX, currY);
+        setTile(currX, currY, getTile(zeroX, zeroY));
+        setTile(zeroX, zeroY, tmp);
         setFreeSpacePosition(currX, currY);
 
     }
@@ -193,9 +315,9 @@ public class Board {
      */
     public boolean checkValidAndMove(int pieceNumber){
 
-        for(int i = 0; i <Constants.EDGE_LENGTH; ++i){
-            for(int j = 0; j < Constants.EDGE_LENGTH; ++j){
-                if(currentBoard[i][j] == pieceNumber){
+        for(int i = 0; i <layout.edgeLength; ++i){
+            for(int j = 0; j < layout.edgeLength; ++j){
+                if(getTile(i, j) == pieceNumber){
                     if( isValidPosition((i-1),j) ){
                         swap(i,j, i-1, j);
                         return true;
@@ -220,73 +342,51 @@ public class Board {
 
 
     /**
-     * A function used for our A* ALgorithm. It determines if a particular piece number is valid given a particular direction
-     * @param pieceNumber A piece number is passed (between 0 and Constances.BOARD_SIZE)
-     * @param direction The directions passed are either up, right, down and left.
-     * @return We return true if we have determined if the move is valid given a particular piece number and direction.
+     * A function used for our search algorithms. It generates every child of this board (every board one move away),
+     * without allocating anything. See SuccessorBuffer for what is written for each child.
+     *
+     * @param heuristic Holds the heuristic value of this board
+     * @param lastMove Holds the direction of the move that created this board (Constants.NO_MOVE if none), that move is not undone
+     * @param successors Holds the buffer the children are written into
+     * @return the number of children generated (2 to 4, minus the move that was not undone)
      */
-    public boolean isMoveValid(int pieceNumber, String direction){
-        for(int i = 0; i <Constants.EDGE_LENGTH; ++i) {
-            for (int j = 0; j < Constants.EDGE_LENGTH; ++j) {
-                if (currentBoard[i][j] == pieceNumber) {
-                    if(direction == "UP"){
-                        if( isValidPosition((i-1),j) )
-                            return true;
-                    }
-                    if(direction == "RIGHT"){
-                        if( isValidPosition((i),j+1) )
-                            return true;
-                    }
-                    if(direction == "DOWN"){
-                        if( isValidPosition((i+1),j) )
-                            return true;
-                    }
-                    if(direction == "LEFT"){
-                        if( isValidPosition((i),j-1) )
-                            return true;
-                    }
-                }
-            }
-        }
-        return false;
+    public int expand(int heuristic, int lastMove, SuccessorBuffer successors){
+        return successors.generate(currentBoard, 0, getFreeSpacePosition(), heuristic, lastMove);
     }
 
     /**
+     * Slides the tile next to the open slot into it, in place (used by our search algorithms to make and unmake moves).
+     * Making the move in the opposite direction (Constants.opposite) undoes it.
      *
-     * A function that swaps the board, holds the new string after the swap, then returns it. Once it holds the string after the swap,
-     * it swaps back to its original state.
-     *
-     * Note: This function is only ever called after we have determined if a direction (up,right,down,left) is a valid move.
-     *
-     * @param direction Holds the direction of where the algorithm wants to go. Options include up, right, down and left.
-     * @return Returns the string of the board after the swap.
+     * @param direction Holds the direction the tile slides in (Constants.UP, RIGHT, DOWN or LEFT)
+     * @return the tile number that was moved, or 0 if no tile can slide into the open slot in that direction
      */
-    public String stringAfterSwap(String direction){
+    public int makeMove(int direction){
 
-        String stringAfterSwap = "";
+        int zero = getFreeSpacePosition();
+        int from = layout.neighbor(zero, direction);
+        if(from < 0)
+            return 0;
 
+        int tile = layout.tileAt(currentBoard, 0, from);
+        layout.moveTile(currentBoard, 0, from, zero);
+        setFreeSpacePosition(from / layout.edgeLength, from % layout.edgeLength);
+        return tile;
+    }
 
-        if(direction == "UP"){
-            swap(getFreeSpaceXPosition()+1, getFreeSpaceYPosition(), getFreeSpaceXPosition(), getFreeSpaceYPosition());
-            stringAfterSwap = getBoardAsString();
-            swap(getFreeSpaceXPosition()-1, getFreeSpaceYPosition(), getFreeSpaceXPosition(), getFreeSpaceYPosition());
-        }
-        if(direction == "RIGHT"){
-            swap(getFreeSpaceXPosition(), getFreeSpaceYPosition()-1, getFreeSpaceXPosition(), getFreeSpaceYPosition());
-            stringAfterSwap = getBoardAsString();
-            swap(getFreeSpaceXPosition(), getFreeSpaceYPosition()+1, getFreeSpaceXPosition(), getFreeSpaceYPosition());
-        }
-        if(direction == "DOWN"){
-            swap(getFreeSpaceXPosition()-1, getFreeSpaceYPosition(), getFreeSpaceXPosition(), getFreeSpaceYPosition());
-            stringAfterSwap = getBoardAsString();
-            swap(getFreeSpaceXPosition()+1, getFreeSpaceYPosition(), getFreeSpaceXPosition(), getFreeSpaceYPosition());
-        }
-        if(direction == "LEFT"){
-            swap(getFreeSpaceXPosition(), getFreeSpaceYPosition()+1, getFreeSpaceXPosition(), getFreeSpaceYPosition());
-            stringAfterSwap = getBoardAsString();
-            swap(getFreeSpaceXPosition(), getFreeSpaceYPosition()-1, getFreeSpaceXPosition(), getFreeSpaceYPosition());
-        }
+    /**
+     * Checks to see if this board is the goal board
+     * @return true if every tile is in its goal position
+     */
+    public boolean isGoal(){
+        return layout.isGoal(currentBoard, 0);
+    }
 
-        return stringAfterSwap;
+    /**
+     *  Grabs the row-major position of our zero (open slot)
+     * @return returns x * edgeLength + y
+     */
+    public int getFreeSpacePosition(){
+        return freeSpaceXPosition * layout.edgeLength + freeSpaceYPosition;
     }
 }
@@ -0,0 +1,340 @@
+/**
+ * Describes how a board of a given edge length is packed into longs, and holds the helpers that read and write packed states.
+ * There is exactly one layout per edge length, shared by every board, search and table of that size.
+ *
+ * Tiles are stored in row-major order, position 0 (top left) in the lowest bits of the first word.
+ *      Up to 4x4 (the 15-puzzle) every tile takes 4 bits (a nibble), so the whole board fits in a single long.
+ *      Beyond that every tile takes 8 bits (a byte), so a 5x5 board takes 4 longs and a 6x6 board takes 5 longs.
+ *
+ * A packed state is always handled as (long[] array, int offset), which lets the search keep many states back to back
+ * in one flat array with a stride of "words" longs per state.
+ */
+public final class BoardLayout {
+
+    public static final int MIN_EDGE_LENGTH = 2;
+    public static final int MAX_EDGE_LENGTH = 15;     // Byte-packed tiles must fit in 8 bits (15 * 15 - 1 = 224)
+    public static final int MAX_WORDS = (MAX_EDGE_LENGTH * MAX_EDGE_LENGTH + 7) / 8;  // Longs used by the largest board
+
+    private static final BoardLayout[] LAYOUTS = new BoardLayout[MAX_EDGE_LENGTH + 1];
+
+    static {
+        for(int n = MIN_EDGE_LENGTH; n <= MAX_EDGE_LENGTH; ++n)
+            LAYOUTS[n] = new BoardLayout(n);
+    }
+
+    public final int edgeLength;    // Number of rows (and columns) of the board
+    public final int boardSize;     // Number of positions on the board, including the open slot
+    public final int bitsPerTile;   // 4 (nibble-packed) or 8 (byte-packed)
+    public final int words;         // Number of longs used by one packed state
+
+    private final int tileShift;    // log2(bitsPerTile)
+    private final int wordShift;    // log2(tiles per word)
+    private final int positionMask; // tiles per word - 1
+    private final long tileMask;    // Mask of the bits of a single tile
+    private final long[] goalState; // Packed goal: 1 2 3 ... with the open slot in the bottom right corner
+    private final int[] distance;   // Manhattan distance of tile t at position p from its goal position, at [t * boardSize + p]
+    private final int[] neighbors;  // Position of the tile that slides into an open slot at p in direction d, at [p * 4 + d] (-1 if none)
+
+    private BoardLayout(int edgeLength){
+
+        this.edgeLength = edgeLength;
+        this.boardSize = edgeLength * edgeLength;
+        this.bitsPerTile = boardSize <= 16 ? 4 : 8;
+        this.tileShift = bitsPerTile == 4 ? 2 : 3;
+        this.wordShift = 6 - tileShift;
+        this.positionMask = (1 << wordShift) - 1;
+        this.tileMask = (1L << bitsPerTile) - 1;
+        this.words = (boardSize + positionMask) >>> wordShift;
+
+        goalState = new long[words];
+        for(int position = 0; position < boardSize - 1; ++position)
+            setTile(goalState, 0, position, position + 1);
+
+        // The goal position of tile t is t - 1. The open slot (tile 0) is not counted: it moves on every move,
+        // so counting it would overestimate the number of moves left and A* would no longer find optimal paths.
+        distance = new int[boardSize * boardSize];
+        for(int tile = 1; tile < boardSize; ++tile){
+            int target = tile - 1;
+            for(int position = 0; position < boardSize; ++position)
+                distance[tile * boardSize + position] = Math.abs(position / edgeLength - target / edgeLength)
+                                                      + Math.abs(position % edgeLength - target % edgeLength);
+        }
+
+        // A tile moving UP comes from the row below the open slot, RIGHT from the column to its left, and so on
+        neighbors = new int[boardSize * 4];
+        for(int position = 0; position < boardSize; ++position){
+            int row = position / edgeLength;
+            int column = position % edgeLength;
+            neighbors[position * 4 + Constants.UP]    = row < edgeLength - 1 ? position + edgeLength : -1;
+            neighbors[position * 4 + Constants.RIGHT] = column > 0 ? position - 1 : -1;
+            neighbors[position * 4 + Constants.DOWN]  = row > 0 ? position - edgeLength : -1;
+            neighbors[position * 4 + Constants.LEFT]  = column < edgeLength - 1 ? position + 1 : -1;
+        }
+    }
+
+    /**
+     * Grabs the layout for boards of a given edge length
+     * @param edgeLength number of rows of the board (3 for the 8-puzzle, 4 for the 15-puzzle, ...)
+     * @return the shared layout
+     */
+    public static BoardLayout forEdgeLength(int edgeLength){
+
+        if(edgeLength < MIN_EDGE_LENGTH || edgeLength > MAX_EDGE_LENGTH)
+            throw new IllegalArgumentException("Edge length must be between " + MIN_EDGE_LENGTH + " and " + MAX_EDGE_LENGTH + ", got " + edgeLength);
+        return LAYOUTS[edgeLength];
+    }
+
+    /**
+     * Grabs the layout for boards with a given number of positions
+     * @param boardSize number of positions, including the open slot (9 for the 8-puzzle, 16 for the 15-puzzle, ...)
+     * @return the shared layout
+     */
+    public static BoardLayout forBoardSize(int boardSize){
+
+        int edgeLength = (int) Math.round(Math.sqrt(boardSize));
+        if(edgeLength * edgeLength != boardSize)
+            throw new IllegalArgumentException("A board must be square, " + boardSize + " tiles is not a square number");
+        return forEdgeLength(edgeLength);
+    }
+
+    /**
+     * Reads the tile stored at a position of a packed state
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @param position the row-major position (0 to boardSize - 1)
+     * @return the tile number at that position (0 is the open slot)
+     */
+    public int tileAt(long[] state, int offset, int position){
+        return (int) ((state[offset + (position >>> wordShift)] >>> ((position & positionMask) << tileShift)) & tileMask);
+    }
+
+    /**
+     * Stores a tile at a position of a packed state
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @param position the row-major position (0 to boardSize - 1)
+     * @param tile the tile number to store
+     */
+    public void setTile(long[] state, int offset, int position, int tile){
+
+        int word = offset + (position >>> wordShift);
+        int shift = (position & positionMask) << tileShift;
+        state[word] = (state[word] & ~(tileMask << shift)) | ((long) tile << shift);
+    }
+
+    /**
+     * Slides the tile at position "from" into the open slot at position "to", in place.
+     * Since the open slot holds zero bits, this is just moving the tile's bits.
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @param from the position of the tile being moved
+     * @param to the position of the open slot
+     */
+    public void moveTile(long[] state, int offset, int from, int to){
+
+        long tile = tileAt(state, offset, from);
+        state[offset + (from >>> wordShift)] -= tile << ((from & positionMask) << tileShift);
+        state[offset + (to >>> wordShift)] += tile << ((to & positionMask) << tileShift);
+    }
+
+    /**
+     * Grabs the position of the tile that would slide into the open slot in a given direction (a table look-up)
+     * @param blankPosition the position of the open slot
+     * @param direction the direction the tile moves in (Constants.UP, RIGHT, DOWN or LEFT)
+     * @return the position of the tile, or -1 if no tile can move into the open slot in that direction
+     */
+    public int neighbor(int blankPosition, int direction){
+        return neighbors[blankPosition * 4 + direction];
+    }
+
+    /**
+     * Grabs the Manhattan distance of a tile from its goal position (a table look-up)
+     * @param tile the tile number (0 is the open slot, whose distance is always 0)
+     * @param position the row-major position the tile sits in
+     * @return the number of rows plus columns between the position and the tile's goal position
+     */
+    public int distance(int tile, int position){
+        return distance[tile * boardSize + position];
+    }
+
+    /**
+     * Computes the heuristic value after a move from the heuristic value before it, in constant time.
+     * A move only changes the position of one tile, so only its distance changes.
+     * @param heuristic the heuristic value before the move
+     * @param tile the tile being moved
+     * @param from the position of the tile before the move (the open slot after it)
+     * @param to the position of the open slot before the move (the tile after it)
+     * @return the heuristic value after the move
+     */
+    public int heuristicAfterMove(int heuristic, int tile, int from, int to){
+        return heuristic + distance[tile * boardSize + to] - distance[tile * boardSize + from];
+    }
+
+    /**
+     * Finds the position of the open slot (zero) in a packed state
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return the row-major position of the zero
+     */
+    public int blankPosition(long[] state, int offset){
+
+        for(int position = 0; position < boardSize; ++position)
+            if(tileAt(state, offset, position) == 0)
+                return position;
+        throw new IllegalArgumentException("Board state has no open slot.");
+    }
+
+    /**
+     * Packs tiles given in row-major order
+     * @param tiles the tile numbers, boardSize of them
+     * @param state array receiving the packed state
+     * @param offset index of the first word of the state in the array
+     */
+    public void pack(int[] tiles, long[] state, int offset){
+
+        for(int word = 0; word < words; ++word)
+            state[offset + word] = 0;
+        for(int position = 0; position < boardSize; ++position)
+            setTile(state, offset, position, tiles[position]);
+    }
+
+    /**
+     * Unpacks a state into its tiles in row-major order
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return the tile numbers, boardSize of them
+     */
+    public int[] unpack(long[] state, int offset){
+
+        int[] tiles = new int[boardSize];
+        for(int position = 0; position < boardSize; ++position)
+            tiles[position] = tileAt(state, offset, position);
+        return tiles;
+    }
+
+    /**
+     * Copies the goal state
+     * @param state array receiving the packed goal state
+     * @param offset index of the first word of the state in the array
+     */
+    public void copyGoal(long[] state, int offset){
+        System.arraycopy(goalState, 0, state, offset, words);
+    }
+
+    /**
+     * Checks to see if a packed state is the goal state
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return true if every tile is in its goal position
+     */
+    public boolean isGoal(long[] state, int offset){
+        return equals(state, offset, goalState, 0);
+    }
+
+    /**
+     * Checks to see if a packed state can reach the goal at all, without searching. This uses the classic parity argument:
+     *      Count the inversions (pairs of tiles, ignoring the open slot, that appear in the wrong order).
+     *      A move left/right never changes this count. A move up/down changes it by edgeLength - 1 tiles.
+     *      For an odd edge length the parity of the inversions never changes, so it must be even like the goal's.
+     *      For an even edge length every up/down move flips it, so the inversions plus the number of rows the open slot
+     *      sits above the bottom row must be even (like the goal's, where both are 0).
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return true if the goal can be reached from the state, false if the search would only exhaust half the state space
+     */
+    public boolean hasSolution(long[] state, int offset){
+
+        int inversions = 0;
+        int blankRow = 0;
+        for(int i = 0; i < boardSize; ++i){
+            int tile = tileAt(state, offset, i);
+            if(tile == 0){
+                blankRow = i / edgeLength;
+                continue;
+            }
+            for(int j = i + 1; j < boardSize; ++j){
+                int other = tileAt(state, offset, j);
+                if(other != 0 && other < tile)
+                    inversions++;
+            }
+        }
+
+        if(edgeLength % 2 == 1)
+            return inversions % 2 == 0;
+        return (inversions + (edgeLength - 1 - blankRow)) % 2 == 0;
+    }
+
+    /**
+     * Reflects a board across its main diagonal (row r, column c goes to row c, column r) and relabels the tiles so that
+     * the goal reflects onto itself: the tile whose goal is row r, column c becomes the tile whose goal is row c, column r.
+     * The reflected board is exactly as far from the goal as the original, and a solution of one is a solution of the
+     * other with UP and LEFT swapped, and DOWN and RIGHT swapped (see transposeDirection).
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @param transposed array receiving the reflected state (must not overlap the state)
+     * @param transposedOffset index of the first word of the reflected state
+     */
+    public void transpose(long[] state, int offset, long[] transposed, int transposedOffset){
+
+        for(int word = 0; word < words; ++word)
+            transposed[transposedOffset + word] = 0;
+        for(int position = 0; position < boardSize; ++position){
+            int tile = tileAt(state, offset, position);
+            int reflected = (position % edgeLength) * edgeLength + position / edgeLength;
+            setTile(transposed, transposedOffset, reflected, tile == 0 ? 0 : ((tile - 1) % edgeLength) * edgeLength + (tile - 1) / edgeLength + 1);
+        }
+    }
+
+    /**
+     * Grabs the direction a move becomes on a board reflected with transpose()
+     * @param direction one of Constants.UP, RIGHT, DOWN or LEFT
+     * @return LEFT for UP, DOWN for RIGHT, and the other way around
+     */
+    public static int transposeDirection(int direction){
+        return 3 - direction;
+    }
+
+    /**
+     * Compares two packed states word by word
+     * @return true if both states hold the same board
+     */
+    public boolean equals(long[] a, int aOffset, long[] b, int bOffset){
+
+        for(int word = 0; word < words; ++word)
+            if(a[aOffset + word] != b[bOffset + word])
+                return false;
+        return true;
+    }
+
+    /**
+     * Spreads the bits of a packed state so that boards differing in a single tile land far apart in a hash table
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return the mixed hash value
+     */
+    public int hash(long[] state, int offset){
+
+        long h = 0;
+        for(int word = 0; word < words; ++word)
+            h = (h + state[offset + word]) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Converts a packed state to its string form. Boards up to 3x3 use one digit per tile (ex: "123456780"),
+     * larger boards separate the tiles with commas (ex: "1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,0").
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return the board as a string, in the same format Board(String) parses
+     */
+    public String toString(long[] state, int offset){
+
+        StringBuilder boardAsString = new StringBuilder(boardSize * 3);
+        for(int position = 0; position < boardSize; ++position){
+            if(position > 0 && boardSize > 10)
+                boardAsString.append(',');
+            boardAsString.append(tileAt(state, offset, position));
+        }
+        return boardAsString.toString();
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.Arrays;
+
+/**
+ * The open list of our A* algorithm. Rather than a binary heap of objects, this is an array of buckets indexed by
+ * the total cost f of a board. In the sliding tile puzzle f is a small integer (at most a few hundred), so pushing is
+ * just appending to a bucket and popping is taking from the lowest non-empty bucket: both are constant time.
+ *
+ * A bucket only stores closed set handles (plain ints). Inside a bucket the order is LIFO (a stack), so among boards with
+ * the same f the most recently generated one comes out first. Those are the deepest boards (highest g, lowest h), which
+ * is the usual tie-breaking for A* and comes for free here.
+ */
+public class BucketQueue {
+
+    private static final int INITIAL_BUCKETS = 64;
+    private static final int INITIAL_BUCKET_SIZE = 16;
+
+    private int[][] buckets = new int[INITIAL_BUCKETS][];  // Handles per f, allocated the first time a bucket is used
+    private int[] bucketSizes = new int[INITIAL_BUCKETS];  // Number of handles in each bucket
+    private int minKey = Integer.MAX_VALUE;                // No bucket below this one holds a handle
+    private int size;                                      // Total number of handles in the queue
+
+    /**
+     * Adds a handle to the queue
+     * @param handle the closed set handle of the board
+     * @param key the total cost f of the board (must not be negative)
+     */
+    public void push(int handle, int key){
+
+        if(key >= buckets.length){
+            int length = Math.max(buckets.length * 2, key + 1);
+            buckets = Arrays.copyOf(buckets, length);
+            bucketSizes = Arrays.copyOf(bucketSizes, length);
+        }
+
+        int[] bucket = buckets[key];
+        int count = bucketSizes[key];
+        if(bucket == null)
+            bucket = buckets[key] = new int[INITIAL_BUCKET_SIZE];
+        else if(count == bucket.length)
+            bucket = buckets[key] = Arrays.copyOf(bucket, count * 2);
+
+        bucket[count] = handle;
+        bucketSizes[key] = count + 1;
+        size++;
+        if(key < minKey)
+            minKey = key;
+    }
+
+    /**
+     * Grabs the lowest key in the queue (the key of the handle pop() will return)
+     * @return the lowest key, or Integer.MAX_VALUE if the queue is empty
+     */
+    public int minKey(){
+
+        if(size == 0)
+            return Integer.MAX_VALUE;
+        while(bucketSizes[minKey] == 0)
+            minKey++;
+        return minKey;
+    }
+
+    /**
+     * Removes the most recently pushed handle of the lowest non-empty bucket
+     * @return the handle
+     */
+    public int pop(){
+
+        int key = minKey();
+        size--;
+        return buckets[key][--bucketSizes[key]];
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Removes every handle. The buckets are kept so the queue can be reused without allocating.
+     */
+    public void clear(){
+        Arrays.fill(bucketSizes, 0);
+        minKey = Integer.MAX_VALUE;
+        size = 0;
+    }
+}
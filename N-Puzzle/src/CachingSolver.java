@@ -0,0 +1,58 @@
+/**
+ * Puts a SolutionCache in front of any solver: a board (or its reflection) that was solved before is answered from the
+ * cache without searching, and every new solution is added to it. The cache may be shared by many solvers and threads.
+ *
+ * The cache hands out its solutions as optimal ones, to every solver sharing it. So a solution is only added if its
+ * solver proved it optimal (see Solver.getBound): weighted A* never does, and ARA* only once its bound reached 1.
+ */
+public class CachingSolver implements Solver {
+
+    private final Solver solver;
+    private final SolutionCache cache;
+    private final SearchMetrics metrics = new SearchMetrics();  // Counters of the solves answered without the solver
+
+    /**
+     * @param solver the solver to run on a cache miss
+     * @param cache the cache to look boards up in
+     */
+    public CachingSolver(Solver solver, SolutionCache cache){
+        this.solver = solver;
+        this.cache = cache;
+    }
+
+    /**
+     * Solves a board, from the cache if possible. Boards that fail the parity check are rejected without a look-up.
+     * Only optimal solutions are cached, never bounded ones or partial results.
+     * @param startBoard the board to solve (not modified)
+     * @param limits the limits of the search, on a cache miss
+     * @return the result of the search, or a result with no boards expanded and one cache hit (see SearchMetrics) if the
+     *         solution came from the cache
+     */
+    public SearchResult solve(Board startBoard, SearchLimits limits){
+
+        metrics.start();
+        if(!startBoard.hasSolution())
+            return new SearchResult(false, null, metrics.finish(-1));
+
+        BoardLayout layout = startBoard.getLayout();
+        long[] state = startBoard.getBoardState();
+        byte[] moves = cache.get(layout, state, 0);
+        if(moves != null){
+            metrics.cacheHits = 1;
+            return new SearchResult(SearchResult.Status.SOLVED, moves, metrics.finish(moves.length));
+        }
+
+        SearchResult result = solver.solve(startBoard, limits);
+        if(result.isSolved() && solver.getBound() == 1){
+            moves = new byte[result.getSolutionLength()];
+            for(int i = 0; i < moves.length; ++i)
+                moves[i] = (byte) result.getMove(i);
+            cache.put(layout, state, 0, moves);
+        }
+        return result;
+    }
+
+    public SolutionCache getCache(){
+        return cache;
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * The closed set (visited table) used by our A* algorithm. It is an open addressing hash table over packed board states,
+ * so no boxed keys or node objects are created for the boards we visit.
+ *
+ * Every board added to the set gets a handle: a small int that never changes (0, 1, 2, ... in insertion order).
+ * The data of a board is stored in primitive parallel arrays indexed by that handle:
+ *      states      the packed board state (layout.words longs per handle, back to back)
+ *      cost        the best path cost (g, number of moves from the start board) known for the board
+ *      heuristic   the heuristic value of the board
+ *      parent      the handle of the board we came from (NO_PARENT for the start board)
+ *      blank       the position of the open slot of the board
+ *      move        the direction of the move that created the board (Constants.NO_MOVE for the start board)
+ *
+ * The hash table itself only stores handles (plus one), so growing it never moves the data and parents stay valid.
+ */
+public class ClosedSet {
+
+    public static final int NO_PARENT = -1;        // Parent handle of the start board
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    private final BoardLayout layout;   // Size and packing of the boards held in the set
+    private final int words;            // Number of longs per packed state
+    private int[] table;        // Open addressing table (linear probing) holding handle + 1, 0 means empty
+    private int mask;           // table.length - 1, the table length is always a power of two
+    private int size;           // Number of boards in the set (also the next handle to give out)
+
+    private long[] states;      // Packed board state per handle, the state of handle h starts at h * words
+    private int[] cost;         // Path cost per handle
+    private int[] heuristic;    // Heuristic value per handle
+    private int[] parent;       // Parent handle per handle
+    private byte[] blank;       // Open slot position per handle (read back as an unsigned byte)
+    private byte[] move;        // Direction of the move that created the board, per handle
+
+    /**
+     * @param layout the layout of the boards that will be held in the set
+     */
+    public ClosedSet(BoardLayout layout){
+        this.layout = layout;
+        this.words = layout.words;
+        table = new int[INITIAL_CAPACITY * 2];
+        mask = table.length - 1;
+        states = new long[INITIAL_CAPACITY * words];
+        cost = new int[INITIAL_CAPACITY];
+        heuristic = new int[INITIAL_CAPACITY];
+        parent = new int[INITIAL_CAPACITY];
+        blank = new byte[INITIAL_CAPACITY];
+        move = new byte[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Looks a board up and adds it if it is not in the set yet. This is the only probe needed per child.
+     * A newly added board starts with a cost, heuristic and open slot position of 0, no parent and no move,
+     * the caller is expected to fill them in.
+     *
+     * @param state array holding the packed board state
+     * @param offset index of the first word of the state in the array
+     * @return the handle of the board if it was already in the set, or -(handle + 1) if it was just added
+     */
+    public int lookupOrInsert(long[] state, int offset){
+
+        int index = layout.hash(state, offset) & mask;
+        int entry;
+        while((entry = table[index]) != 0){
+            if(layout.equals(states, (entry - 1) * words, state, offset))
+                return entry - 1;
+            index = (index + 1) & mask;
+        }
+
+        int handle = size++;
+        if(handle == cost.length)
+            growEntries();
+        System.arraycopy(state, offset, states, handle * words, words);
+        cost[handle] = 0;
+        heuristic[handle] = 0;
+        parent[handle] = NO_PARENT;
+        blank[handle] = 0;
+        move[handle] = Constants.NO_MOVE;
+        table[index] = handle + 1;
+
+        if(size * 2 > table.length)     // Keep the load factor at or below 1/2
+            growTable();
+        return -(handle + 1);
+    }
+
+    /**
+     * Looks a board up without adding it
+     * @param state array holding the packed board state
+     * @param offset index of the first word of the state in the array
+     * @return the handle of the board, or -1 if it is not in the set
+     */
+    public int find(long[] state, int offset){
+
+        int index = layout.hash(state, offset) & mask;
+        int entry;
+        while((entry = table[index]) != 0){
+            if(layout.equals(states, (entry - 1) * words, state, offset))
+                return entry - 1;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes every board from the set. The arrays are kept so the set can be reused without allocating.
+     */
+    public void clear(){
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public BoardLayout getLayout(){
+        return layout;
+    }
+
+    /**
+     * Grabs the memory held by the set: its hash table and the arrays of every handle, grown or not
+     * @return the size of the arrays, in bytes
+     */
+    public long memoryUsage(){
+        return (long) table.length * 4 + (long) states.length * 8 + (long) cost.length * (4 + 4 + 4 + 1 + 1);
+    }
+
+    /**
+     * Copies the packed state of a board out of the set
+     * @param handle the handle of the board
+     * @param state array receiving the packed state
+     * @param offset index of the first word of the state in the array
+     */
+    public void copyState(int handle, long[] state, int offset){
+        System.arraycopy(states, handle * words, state, offset, words);
+    }
+
+    /**
+     * Rebuilds a Board for one of the boards of the set (used when printing)
+     * @param handle the handle of the board
+     * @return a new Board holding that state
+     */
+    public Board getBoard(int handle){
+        return new Board(layout, states, handle * words);
+    }
+
+    public int getCost(int handle){
+        return cost[handle];
+    }
+
+    public void setCost(int handle, int value){
+        cost[handle] = value;
+    }
+
+    public int getHeuristic(int handle){
+        return heuristic[handle];
+    }
+
+    public void setHeuristic(int handle, int value){
+        heuristic[handle] = value;
+    }
+
+    public int getParent(int handle){
+        return parent[handle];
+    }
+
+    public void setParent(int handle, int value){
+        parent[handle] = value;
+    }
+
+    public int getBlank(int handle){
+        return blank[handle] & 0xFF;
+    }
+
+    public void setBlank(int handle, int value){
+        blank[handle] = (byte) value;
+    }
+
+    public int getMove(int handle){
+        return move[handle];
+    }
+
+    public void setMove(int handle, int value){
+        move[handle] = (byte) value;
+    }
+
+    /**
+     * Doubles the per handle arrays once every handle has been given out
+     */
+    private void growEntries(){
+        int capacity = cost.length * 2;
+        states = Arrays.copyOf(states, capacity * words);
+        cost = Arrays.copyOf(cost, capacity);
+        heuristic = Arrays.copyOf(heuristic, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        blank = Arrays.copyOf(blank, capacity);
+        move = Arrays.copyOf(move, capacity);
+    }
+
+    /**
+     * Doubles the hash table and re-inserts every handle. The handles themselves do not change.
+     */
+    private void growTable(){
+        table = new int[table.length * 2];
+        mask = table.length - 1;
+        for(int handle = 0; handle < size; ++handle){
+            int index = layout.hash(states, handle * words) & mask;
+            while(table[index] != 0)
+                index = (index + 1) & mask;
+            table[index] = handle + 1;
+        }
+    }
+}
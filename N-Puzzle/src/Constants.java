@@ -1,14 +1,34 @@
 /**
  * A constants class that holds global constants throughout the program.
- *  This is especially helpful to avoid the need to change the entire code when wanting to change the board size and edge length
+ *  This is especially helpful to avoid the need to change the entire code when wanting to change the edge length of the game
  */
 public final class Constants {
 
     private Constants(){}
 
-    //Constants to be used in application.
-    public static final int BOARD_SIZE = 9;
+    //Constants to be used in application. The edge length is the default of the interactive game (see Board()),
+    //the search itself works on any N x N board and takes its size from the board it is given (see BoardLayout).
     public static final int EDGE_LENGTH = 3;
-    public static final String goalState8Puzzle = "123456780";
+    public static final int CLOSEST_BOARD_LIMIT = 200000;  // Most boards visited when looking for the closest board to an impossible puzzle
+    public static final int SOLUTION_CACHE_SIZE = 100000;  // Most solutions the batch solver keeps for boards that come up again
+    public static final String PATTERN_DATABASE_DIRECTORY = "pdb";   // Where pattern database, distance table and BFS layer files are kept, relative to the
+                                                                     // working directory (-Dnpuzzle.pdb.dir overrides it, ignored by git)
+
+    //Directions a tile can slide into the open slot. Opposite directions are 2 apart.
+    public static final int UP = 0;
+    public static final int RIGHT = 1;
+    public static final int DOWN = 2;
+    public static final int LEFT = 3;
+    public static final int NO_MOVE = -1;               // "Move" that created the start board
+    public static final String[] DIRECTION_NAMES = {"UP", "RIGHT", "DOWN", "LEFT"};
+
+    /**
+     * Grabs the direction that undoes a move in the given direction
+     * @param direction one of UP, RIGHT, DOWN or LEFT
+     * @return the opposite direction
+     */
+    public static int opposite(int direction){
+        return direction ^ 2;
+    }
 
 }
@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The exact distance to the goal of every 3x3 board, with the best move from it. The 8-puzzle only has 9! / 2 = 181440
+ * boards that can reach the goal, so a single breadth-first search backwards from the goal finds all of them, once.
+ * Solving a board is then a walk down the table: look up the best move, make it, and repeat until the goal, which takes
+ * microseconds instead of a search.
+ *
+ * Every board gets its own entry (a perfect hash, no collisions and no keys stored):
+ *      index = position of the open slot * 8! / 2 + (rank of the order of the 8 tiles) / 2
+ *      The rank of an order is its number in lexicographic order (see PermutationRank.rankTiles). Orders 2k and 2k + 1
+ *      only differ by a swap of their last two tiles, so exactly one of them has the even parity every solvable board has,
+ *      and halving the rank keeps them apart.
+ * An entry is one byte: distance * 4 + best move (Constants.UP, RIGHT, DOWN or LEFT). The farthest boards are 31 moves
+ * away, so it always fits.
+ *
+ * The table is saved to a versioned binary file (magic "NP8T", version, number of entries, then the entries) and
+ * memory-mapped on later starts, in the same directory as the pattern databases.
+ */
+public class EightPuzzleTable implements Solver {
+
+    static final int FILE_MAGIC = 0x4E503854;       // "NP8T"
+    static final int FILE_VERSION = 1;
+    static final int ENTRIES = 181440;              // 9! / 2
+    private static final int HEADER_SIZE = 12;
+    private static final int ORDERS_PER_BLANK = 20160;  // 8! / 2
+
+    private static EightPuzzleTable shared;
+
+    private final BoardLayout layout = BoardLayout.forEdgeLength(3);
+    private final ByteBuffer table;     // Header then one entry per board (memory-mapped from the file when it could be written)
+
+    /**
+     * Loads the table from a file, building and saving it first if the file is missing or out of date
+     * @param file the file holding the table
+     */
+    public EightPuzzleTable(Path file){
+
+        ByteBuffer loaded = load(file);
+        table = loaded != null ? loaded : buildAndSave(file);
+    }
+
+    /**
+     * Grabs the table shared by every solver, kept in the directory given by the "npuzzle.pdb.dir" system property
+     * (Constants.PATTERN_DATABASE_DIRECTORY by default)
+     * @return the shared table
+     */
+    public static synchronized EightPuzzleTable getInstance(){
+
+        if(shared == null){
+            Path directory = Paths.get(System.getProperty("npuzzle.pdb.dir", Constants.PATTERN_DATABASE_DIRECTORY));
+            shared = new EightPuzzleTable(directory.resolve("distance-3x3.bin"));
+        }
+        return shared;
+    }
+
+    /**
+     * Solves a 3x3 board by walking down the table. Boards that fail the parity check (see Board.hasSolution) are rejected right away.
+     * The limits are not checked: a walk takes at most 31 look-ups.
+     * @param startBoard the board to solve (not modified)
+     * @param limits the limits of the search (ignored)
+     * @return the optimal solution (the number of boards expanded is the number of table look-ups)
+     * @throws IllegalArgumentException if the board is not 3x3
+     */
+    public SearchResult solve(Board startBoard, SearchLimits limits){
+
+        if(startBoard.getLayout() != layout)
+            throw new IllegalArgumentException("The distance table only covers 3x3 boards");
+        SearchMetrics metrics = new SearchMetrics();    // Per solve, the table is shared by every thread
+        metrics.start();
+        if(!startBoard.hasSolution())
+            return new SearchResult(false, null, metrics.finish(-1));
+
+        Board board = new Board(layout, startBoard.getBoardState(), 0);
+        long[] state = new long[layout.words];
+        board.copyBoardState(state, 0);
+        byte[] moves = new byte[distance(state, 0)];
+        for(int i = 0; i < moves.length; ++i){
+            moves[i] = (byte) bestMove(state, 0);
+            board.makeMove(moves[i]);
+            board.copyBoardState(state, 0);
+        }
+        metrics.expanded = moves.length + 1;
+        metrics.iterations = 1;
+        return new SearchResult(SearchResult.Status.SOLVED, moves, metrics.finish(moves.length));
+    }
+
+    /**
+     * Grabs the exact number of moves from a solvable 3x3 board to the goal
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return the length of the optimal solution
+     */
+    public int distance(long[] state, int offset){
+        return (table.get(HEADER_SIZE + index(state, offset)) & 0xFF) >>> 2;
+    }
+
+    /**
+     * Grabs the first move of an optimal solution of a solvable 3x3 board (meaningless on the goal)
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return the direction of the move (Constants.UP, RIGHT, DOWN or LEFT)
+     */
+    public int bestMove(long[] state, int offset){
+        return table.get(HEADER_SIZE + index(state, offset)) & 3;
+    }
+
+    /**
+     * Computes the entry of a board (see the class comment)
+     */
+    private int index(long[] state, int offset){
+        return layout.blankPosition(state, offset) * ORDERS_PER_BLANK + (int) (PermutationRank.rankTiles(layout, state, offset) / 2);
+    }
+
+    /**
+     * Maps the file and checks its header
+     * @return the mapped table, or null if the file is missing or does not match
+     */
+    private static ByteBuffer load(Path file){
+
+        if(!Files.isRegularFile(file))
+            return null;
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            if(channel.size() != HEADER_SIZE + ENTRIES)
+                return null;
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + ENTRIES);
+            if(buffer.getInt(0) != FILE_MAGIC || buffer.getInt(4) != FILE_VERSION || buffer.getInt(8) != ENTRIES)
+                return null;
+            return buffer;
+        }
+        catch(IOException e){
+            System.err.println("Could not read distance table " + file + " (" + e + "), rebuilding it.");
+            return null;
+        }
+    }
+
+    /**
+     * Builds the table and writes it to the file (through a temporary file, so a half written file is never loaded)
+     * @return the table, mapped from the file, or kept in memory if the file could not be written
+     */
+    private ByteBuffer buildAndSave(Path file){
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + ENTRIES);
+        buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(ENTRIES);
+        buffer.put(build()).flip();
+
+        try{
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)){
+                while(buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            ByteBuffer mapped = load(file);
+            if(mapped != null)
+                return mapped;
+        }
+        catch(IOException e){
+            System.err.println("Could not save distance table " + file + " (" + e + "), keeping it in memory.");
+        }
+        return buffer.rewind();
+    }
+
+    /**
+     * Runs the breadth-first search backwards from the goal. A board reached from its parent by moving a tile in some
+     * direction gets the opposite direction as its best move (it undoes that move, one step closer to the goal).
+     * @return one entry per board
+     */
+    private byte[] build(){
+
+        byte[] entries = new byte[ENTRIES];
+        boolean[] reached = new boolean[ENTRIES];
+        long[] queue = new long[ENTRIES];           // 3x3 states fit in a single long
+        int[] blanks = new int[ENTRIES];
+        int head = 0, tail = 0;
+        SuccessorBuffer successors = new SuccessorBuffer(layout, new ManhattanHeuristic(layout));
+
+        long[] state = new long[layout.words];
+        layout.copyGoal(state, 0);
+        reached[index(state, 0)] = true;
+        blanks[tail] = 8;
+        queue[tail++] = state[0];
+
+        while(head < tail){
+            state[0] = queue[head];
+            int distance = (entries[index(state, 0)] & 0xFF) >>> 2;
+            successors.generate(state, 0, blanks[head++], 0, Constants.NO_MOVE);
+            for(int i = 0; i < successors.count; ++i){
+                int child = index(successors.states, i);
+                if(reached[child])
+                    continue;
+                reached[child] = true;
+                entries[child] = (byte) ((distance + 1) << 2 | Constants.opposite(successors.move[i]));
+                blanks[tail] = successors.blank[i];
+                queue[tail++] = successors.states[i];
+            }
+        }
+        return entries;
+    }
+}
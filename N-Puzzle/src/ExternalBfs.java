@@ -0,0 +1,473 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A breadth-first search over every board reachable from the goal, kept on disk rather than in memory, so state spaces far
+ * larger than the memory (the 15-puzzle has about 10^13 boards) can be enumerated. It gives the number of boards at every
+ * distance from the goal and the diameter (the largest distance), and the layer files themselves can be kept to build
+ * exact distance tables or to check heuristics against (see openLayer).
+ *
+ * Each layer (the boards at one distance) is a file of board ranks (see PermutationRank.rankState) in increasing order,
+ * each stored as the difference from the previous one in a variable-length encoding (7 bits per byte, the high bit set on
+ * every byte but the last). A dense layer then takes one or two bytes per board.
+ *
+ * Layer d + 1 is built in two streaming passes, with delayed duplicate detection:
+ *      expand  layer d is read in order, and the children of its boards are collected in memory. Every time the buffer
+ *              is full it is sorted and written out as a run (a file in the same format, duplicates removed).
+ *      merge   the runs are merged, and every board also found in layer d or layer d - 1 is dropped. A move can only lead
+ *              to the layer before, the same layer or the next one, so what is left is exactly layer d + 1.
+ * More than MERGE_FAN_IN runs are first merged in groups, so few files are ever open at once.
+ *
+ * Every file is read and written sequentially through large buffers (FileChannel), never randomly.
+ * Boards are ranked into a long, so boards up to 4x4 are supported.
+ *
+ * Layer file: magic "NPBL", version, edge length, 0 (int each), number of boards (long), then the encoded differences.
+ *
+ * Usage: java TilesDriver bfs [edgeLength] [directory] [maxDepth] [boardsPerRun]
+ */
+public class ExternalBfs {
+
+    static final int FILE_MAGIC = 0x4E50424C;       // "NPBL"
+    static final int FILE_VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int MAX_EDGE_LENGTH = 4;           // 16! boards is the most a long rank holds
+
+    private static final int IO_BUFFER_SIZE = 1 << 20;  // Bytes read or written per system call
+    private static final int MERGE_FAN_IN = 64;         // Most runs merged at once
+    private static final int DEFAULT_RUN_LENGTH = 1 << 22;  // Boards sorted in memory per run (32 MB)
+
+    private final BoardLayout layout;
+    private final Path directory;       // Where the layer and run files are written
+    private final int runLength;        // Boards collected in memory before a run is written
+    private final boolean keepLayers;   // Keep every layer file, not only the last ones
+    private long[] counts = new long[0];    // Boards per distance from the goal
+
+    /**
+     * @param layout the layout of the boards (at most 4x4)
+     * @param directory where the layer files are written (created if needed)
+     * @param runLength the boards sorted in memory at once (8 bytes each)
+     * @param keepLayers true to keep every layer file, false to delete each one once the two layers after it are built
+     */
+    public ExternalBfs(BoardLayout layout, Path directory, int runLength, boolean keepLayers){
+
+        if(layout.edgeLength > MAX_EDGE_LENGTH)
+            throw new IllegalArgumentException("Boards larger than " + MAX_EDGE_LENGTH + "x" + MAX_EDGE_LENGTH + " cannot be ranked into a long");
+        if(runLength < 4)
+            throw new IllegalArgumentException("A run must hold at least the children of one board");
+        this.layout = layout;
+        this.directory = directory;
+        this.runLength = runLength;
+        this.keepLayers = keepLayers;
+    }
+
+    public static void main(String[] args){
+
+        int edgeLength = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        Path directory = args.length > 1 ? Paths.get(args[1])
+                : Paths.get(System.getProperty("npuzzle.pdb.dir", Constants.PATTERN_DATABASE_DIRECTORY), "bfs-" + edgeLength + "x" + edgeLength);
+        int maxDepth = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+        int runLength = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_RUN_LENGTH;
+
+        ExternalBfs bfs = new ExternalBfs(BoardLayout.forEdgeLength(edgeLength), directory, runLength, false);
+        long start = System.nanoTime();
+        try{
+            bfs.run(maxDepth);
+        }
+        catch(IOException e){
+            System.err.println("Breadth-first search failed: " + e);
+            System.exit(1);
+        }
+
+        long total = 0;
+        for(long count : bfs.getCounts())
+            total += count;
+        System.out.printf(Locale.ROOT, "%d boards, diameter %d%s, %.1f s%n", total, bfs.getDiameter(),
+                          bfs.getCounts().length - 1 == maxDepth ? " or more (stopped at the depth limit)" : "",
+                          (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Runs the search from the goal, printing the size of every layer as it is built
+     * @param maxDepth the last layer to build (Integer.MAX_VALUE to run until no boards are left)
+     * @return the number of boards at every distance from the goal (see getCounts)
+     * @throws IOException if a file cannot be read or written
+     */
+    public long[] run(int maxDepth) throws IOException {
+
+        Files.createDirectories(directory);
+        long[] goal = new long[layout.words];
+        layout.copyGoal(goal, 0);
+        try(LayerWriter out = new LayerWriter(layerFile(0), layout.edgeLength)){
+            out.write(PermutationRank.rankState(layout, goal, 0));
+        }
+        counts = new long[]{1};
+        System.out.println("Depth 0: 1 board");
+
+        for(int depth = 0; depth < maxDepth; ++depth){
+
+            long start = System.nanoTime();
+            List<Path> runs = expand(depth);
+            long count = merge(depth + 1, runs);
+            for(Path run : runs)
+                Files.deleteIfExists(run);
+            if(!keepLayers && depth > 0)
+                Files.deleteIfExists(layerFile(depth - 1));
+
+            if(count == 0){
+                Files.deleteIfExists(layerFile(depth + 1));
+                break;
+            }
+            counts = Arrays.copyOf(counts, depth + 2);
+            counts[depth + 1] = count;
+            System.out.printf(Locale.ROOT, "Depth %d: %d boards (%d runs, %.1f s)%n", depth + 1, count, runs.size(),
+                              (System.nanoTime() - start) / 1e9);
+        }
+        return counts;
+    }
+
+    /**
+     * Grabs the number of boards at every distance from the goal
+     * @return counts[d] is the number of boards d moves away from the goal
+     */
+    public long[] getCounts(){
+        return counts.clone();
+    }
+
+    /**
+     * Grabs the largest distance from the goal: the most moves any board needs (once the search has run to the end)
+     * @return the diameter of the state space
+     */
+    public int getDiameter(){
+        return counts.length - 1;
+    }
+
+    /**
+     * Opens a layer file to stream its boards (only the last layers are left unless keepLayers was asked for)
+     * @param depth the distance from the goal of the boards
+     * @return a reader returning the ranks of the boards in increasing order
+     * @throws IOException if the file cannot be opened or is not a layer of these boards
+     */
+    public LayerReader openLayer(int depth) throws IOException {
+        return new LayerReader(layerFile(depth), layout.edgeLength);
+    }
+
+    public Path layerFile(int depth){
+        return directory.resolve("layer-" + depth + ".bin");
+    }
+
+    /**
+     * Generates the children of every board of a layer, written out as sorted runs
+     * @param depth the layer to expand
+     * @return the run files, each sorted with no duplicates
+     */
+    private List<Path> expand(int depth) throws IOException {
+
+        List<Path> runs = new ArrayList<>();
+        long[] buffer = new long[runLength];
+        long[] state = new long[layout.words];
+        long[] child = new long[layout.words];
+        int size = 0;
+
+        try(LayerReader in = openLayer(depth)){
+            for(long rank = in.next(); rank >= 0; rank = in.next()){
+
+                PermutationRank.unrankState(layout, rank, state, 0);
+                int blank = layout.blankPosition(state, 0);
+                if(size > runLength - 4){
+                    runs.add(writeRun(depth + 1, runs.size(), buffer, size));
+                    size = 0;
+                }
+                for(int direction = 0; direction < 4; ++direction){
+                    int from = layout.neighbor(blank, direction);
+                    if(from < 0)
+                        continue;
+                    System.arraycopy(state, 0, child, 0, layout.words);
+                    layout.moveTile(child, 0, from, blank);
+                    buffer[size++] = PermutationRank.rankState(layout, child, 0);
+                }
+            }
+        }
+        if(size > 0)
+            runs.add(writeRun(depth + 1, runs.size(), buffer, size));
+        return runs;
+    }
+
+    /**
+     * Sorts the children collected in memory and writes them out as one run
+     */
+    private Path writeRun(int depth, int index, long[] buffer, int size) throws IOException {
+
+        Arrays.sort(buffer, 0, size);
+        Path run = directory.resolve("run-" + depth + "-" + index + ".bin");
+        try(LayerWriter out = new LayerWriter(run, layout.edgeLength)){
+            for(int i = 0; i < size; ++i)
+                out.write(buffer[i]);       // Repeated boards are dropped by the writer
+        }
+        return run;
+    }
+
+    /**
+     * Merges the runs of the children of a layer into the next layer, dropping the boards of the two layers before it
+     * @param depth the layer being built
+     * @param runs the sorted runs of the children (intermediate runs are added to it, so they are deleted with the others)
+     * @return the number of boards in the new layer
+     */
+    private long merge(int depth, List<Path> runs) throws IOException {
+
+        List<Path> pending = new ArrayList<>(runs);
+        while(pending.size() > MERGE_FAN_IN){      // Too many runs to open at once: merge them in groups first
+            List<Path> merged = new ArrayList<>();
+            for(int i = 0; i < pending.size(); i += MERGE_FAN_IN){
+                Path run = directory.resolve("run-" + depth + "-m" + runs.size() + ".bin");
+                runs.add(run);
+                merged.add(run);
+                mergeRuns(pending.subList(i, Math.min(pending.size(), i + MERGE_FAN_IN)), run, new Path[0]);
+            }
+            pending = merged;
+        }
+
+        List<Path> previous = new ArrayList<>();
+        for(int d = depth - 2; d < depth; ++d)
+            if(d >= 0)
+                previous.add(layerFile(d));
+        return mergeRuns(pending, layerFile(depth), previous.toArray(new Path[0]));
+    }
+
+    /**
+     * Merges sorted runs into one sorted file, without duplicates and without the boards of the excluded files
+     * @param inputs the sorted runs
+     * @param output the merged file
+     * @param excluded sorted files whose boards are left out
+     * @return the number of boards written
+     */
+    private long mergeRuns(List<Path> inputs, Path output, Path[] excluded) throws IOException {
+
+        LayerReader[] readers = new LayerReader[inputs.size()];
+        LayerReader[] exclusions = new LayerReader[excluded.length];
+        long[] exclusionHeads = new long[excluded.length];
+        try(LayerWriter out = new LayerWriter(output, layout.edgeLength)){
+
+            for(int i = 0; i < readers.length; ++i)
+                readers[i] = new LayerReader(inputs.get(i), layout.edgeLength);
+            for(int i = 0; i < exclusions.length; ++i){
+                exclusions[i] = new LayerReader(excluded[i], layout.edgeLength);
+                exclusionHeads[i] = exclusions[i].next();
+            }
+
+            // A binary min-heap of the readers, ordered by the board each one is on
+            long[] heads = new long[readers.length];
+            int[] heap = new int[readers.length];
+            int size = 0;
+            for(int i = 0; i < readers.length; ++i){
+                heads[i] = readers[i].next();
+                if(heads[i] >= 0)
+                    heap[size++] = i;
+            }
+            for(int i = size / 2 - 1; i >= 0; --i)
+                siftDown(heap, size, heads, i);
+
+            while(size > 0){
+
+                int top = heap[0];
+                long rank = heads[top];
+                heads[top] = readers[top].next();
+                if(heads[top] < 0)
+                    heap[0] = heap[--size];
+                siftDown(heap, size, heads, 0);
+
+                boolean seen = false;
+                for(int i = 0; i < exclusions.length; ++i){
+                    while(exclusionHeads[i] >= 0 && exclusionHeads[i] < rank)
+                        exclusionHeads[i] = exclusions[i].next();
+                    seen |= exclusionHeads[i] == rank;
+                }
+                if(!seen)
+                    out.write(rank);    // Repeated boards (from several runs) are dropped by the writer
+            }
+            return out.getCount();
+        }
+        finally{
+            for(LayerReader reader : readers)
+                if(reader != null)
+                    reader.close();
+            for(LayerReader reader : exclusions)
+                if(reader != null)
+                    reader.close();
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, long[] heads, int index){
+
+        int entry = heap[index];
+        while(true){
+            int child = 2 * index + 1;
+            if(child >= size)
+                break;
+            if(child + 1 < size && heads[heap[child + 1]] < heads[heap[child]])
+                child++;
+            if(heads[heap[child]] >= heads[entry])
+                break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = entry;
+    }
+
+    /**
+     * Writes board ranks, given in increasing order, to a layer file. A rank equal to the previous one is skipped.
+     */
+    public static final class LayerWriter implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+        private long previous;      // Last rank written
+        private long count;         // Ranks written
+
+        public LayerWriter(Path file, int edgeLength) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(edgeLength).putInt(0).putLong(0);    // Count filled in by close()
+        }
+
+        /**
+         * @param rank the next rank, no lower than the previous one
+         * @throws IOException if the file cannot be written
+         */
+        public void write(long rank) throws IOException {
+
+            if(count > 0 && rank == previous)
+                return;
+            if(rank < previous)
+                throw new IllegalArgumentException("Ranks must be written in increasing order");
+
+            long delta = rank - previous;
+            while((delta & ~0x7FL) != 0){
+                buffer.put((byte) (delta | 0x80));
+                delta >>>= 7;
+            }
+            buffer.put((byte) delta);
+            if(buffer.remaining() < 10)         // A long takes at most 10 bytes
+                flush();
+            previous = rank;
+            count++;
+        }
+
+        public long getCount(){
+            return count;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        /**
+         * Writes what is left in the buffer, then the number of ranks into the header
+         */
+        public void close() throws IOException {
+            try{
+                flush();
+                buffer.putLong(count).flip();
+                channel.write(buffer, HEADER_SIZE - 8);
+            }
+            finally{
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the board ranks of a layer file back, in increasing order
+     */
+    public static final class LayerReader implements Closeable {
+
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+        private long previous;      // Last rank read
+        private long remaining;     // Ranks left to read
+
+        public LayerReader(Path file, int edgeLength) throws IOException {
+
+            this.file = file;
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.limit(0);
+            try{
+                if(nextInt() != FILE_MAGIC || nextInt() != FILE_VERSION || nextInt() != edgeLength)
+                    throw new IOException("Not a layer file of " + edgeLength + "x" + edgeLength + " boards: " + file);
+                nextInt();
+                remaining = ((long) nextInt() << 32) | (nextInt() & 0xFFFFFFFFL);
+            }
+            catch(IOException e){
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return the number of ranks left to read
+         */
+        public long getRemaining(){
+            return remaining;
+        }
+
+        /**
+         * @return the next rank, or -1 once every rank has been read
+         * @throws IOException if the file cannot be read or ends too soon
+         */
+        public long next() throws IOException {
+
+            if(remaining == 0)
+                return -1;
+            remaining--;
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do{
+                b = nextByte();
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            }while(b < 0);
+            previous += delta;
+            return previous;
+        }
+
+        private int nextInt() throws IOException {
+            int value = 0;
+            for(int i = 0; i < 4; ++i)
+                value = (value << 8) | (nextByte() & 0xFF);
+            return value;
+        }
+
+        private byte nextByte() throws IOException {
+
+            if(!buffer.hasRemaining()){
+                buffer.clear();
+                int read;
+                do{
+                    read = channel.read(buffer);
+                }while(read == 0);
+                buffer.flip();
+                if(read < 0)
+                    throw new EOFException("Layer file ends too soon: " + file);
+            }
+            return buffer.get();
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/**
+ * Our breadth-first iterative deepening A* (BFIDA*) with frontier search. Like SearchTree it detects duplicate boards
+ * within the layers it holds, but like IterativeDeepeningSearch it keeps no closed set: its memory only grows with the
+ * widest layer of the search, not with every board it has seen.
+ *
+ * Each iteration is a breadth-first search, one layer (boards at the same depth) at a time, that drops every board whose
+ * total cost f = g + h goes over a bound. The first bound is the heuristic value of the start board, and every following
+ * bound is the lowest f that went over the previous one. The heuristic only has to be admissible (never overestimate):
+ * every board on an optimal path then has f at most the optimal length, so no iteration drops such a path once the bound
+ * reaches that length, and no iteration before it can reach the goal. The goal is first found at the optimal depth.
+ *
+ * Only the layer being expanded and the layer being generated are held (see ClosedSet). Every move changes the parity of
+ * the board, so a board is never generated again in its own layer. To skip the boards it came from, each board keeps
+ * used-operator bits: one bit per direction leading back to a parent in the layer above. A board generated from a parent
+ * gets the bit of the move back to that parent, and a duplicate merges the bits of all its parents. Expanding a board
+ * skips the directions whose bit is set. Those parents were already expanded one move closer to the start, so skipping
+ * them never drops a path. With a consistent heuristic (ex: the Manhattan distance) every board is reached at its true
+ * depth and is expanded once per iteration. With an inconsistent one (ex: the pattern databases, see HeuristicTest)
+ * a board may first show up deeper than its true depth, or be generated again after its layer was dropped, and is then
+ * expanded again: that costs time, but not optimality.
+ *
+ * Since no parents are kept, the solution is rebuilt by divide and conquer. The search saves the middle layer (depth
+ * bound / 2) and every board below it carries a relay: the handle of its ancestor in that layer. Once the goal is found,
+ * its relay is a board halfway along an optimal solution, and the two halves are solved the same way (their length is
+ * known, so a single iteration each), down to short pieces that are solved with a depth-first search. This relies on:
+ *      every piece of an optimal path being an optimal path itself, so the length of each half is its exact distance
+ *      moves that all cost 1, so the relay saved at depth bound / 2 is exactly halfway along the solution
+ *      an admissible heuristic toward the end of every piece: pieces that end on the goal use the heuristic of the
+ *      search, the others the Manhattan distance to their end board (admissible toward any board)
+ *
+ * Limits (see SearchLimits) are checked every SearchLimits.CHECK_INTERVAL expansions. Partial results are not available:
+ * without parents there is no path to the closest board, so a stopped search returns no moves.
+ */
+public class FrontierSearch implements Solver {
+
+    private static final int DIRECT_LENGTH = 8;     // Pieces of a solution this short are solved with a depth-first search
+
+    private final BoardLayout layout;
+    private final Heuristic heuristicFunction;      // Estimate of the moves left to the goal
+    private ClosedSet current;          // The layer being expanded. Per board: heuristic, blank, move = used-operator bits, parent = relay
+    private ClosedSet next;             // The layer being generated
+    private ClosedSet relays;           // The middle layer of the search (relay handles index it)
+    private final long[] child;         // Scratch state the children are made in
+    private SearchLimits limits;        // Limits of the current search
+    private SearchResult.Status stopped;    // Limit that stopped the search, null if none did
+    private final SearchMetrics metrics = new SearchMetrics();  // Over every iteration and every piece of the reconstruction
+
+    /**
+     * Creates a search guided by the Manhattan distance
+     * @param layout the layout of the boards to solve
+     */
+    public FrontierSearch(BoardLayout layout){
+        this(layout, new ManhattanHeuristic(layout));
+    }
+
+    /**
+     * @param layout the layout of the boards to solve
+     * @param heuristicFunction the heuristic bounding the searches (it must never overestimate for the solutions to be optimal,
+     *                          an inconsistent one only costs extra expansions)
+     */
+    public FrontierSearch(BoardLayout layout, Heuristic heuristicFunction){
+        this.layout = layout;
+        this.heuristicFunction = metrics.timed(heuristicFunction);
+        current = new ClosedSet(layout);
+        next = new ClosedSet(layout);
+        relays = new ClosedSet(layout);
+        child = new long[layout.words];
+    }
+
+    /**
+     * Solves a board with BFIDA*. Boards that fail the parity check (see Board.hasSolution) are rejected right away.
+     * @param startBoard the board to solve (not modified)
+     * @param limits the limits of the search
+     * @return the optimal solution (no moves if a limit stopped the search) and the counters of the search
+     */
+    public SearchResult solve(Board startBoard, SearchLimits limits){
+
+        this.limits = limits;
+        stopped = null;
+        metrics.start();
+        if(!startBoard.hasSolution())
+            return new SearchResult(false, null, metrics.finish(-1));
+
+        long[] start = startBoard.getBoardState();
+        long[] goal = new long[layout.words];
+        layout.copyGoal(goal, 0);
+        if(layout.isGoal(start, 0))
+            return new SearchResult(true, new byte[0], metrics.finish(0));
+
+        long[] middle = new long[layout.words];
+        int bound = heuristicFunction.estimate(start, 0);
+        while(true){
+            metrics.iterations++;
+            int nextBound = boundedSearch(start, goal, heuristicFunction, bound, middle);
+            if(stopped != null)
+                break;
+            if(nextBound < 0){
+                byte[] moves = new byte[bound];
+                reconstruct(start, middle, goal, bound, moves, 0);
+                if(stopped != null)
+                    break;
+                return new SearchResult(true, moves, metrics.finish(bound));
+            }
+            bound = nextBound;
+        }
+        return new SearchResult(stopped, null, metrics.finish(-1));
+    }
+
+    /**
+     * Writes the moves of an optimal path that goes through a known board halfway along it
+     * @param from the packed state the path starts on
+     * @param middle the packed state length / 2 moves along the path
+     * @param to the packed state the path ends on
+     * @param length the number of moves of the path
+     * @param moves array receiving the moves
+     * @param at index in moves of the first move of the path
+     */
+    private void reconstruct(long[] from, long[] middle, long[] to, int length, byte[] moves, int at){
+
+        int half = length / 2;
+        solvePiece(from, middle, half, moves, at);
+        if(stopped == null)
+            solvePiece(middle, to, length - half, moves, at + half);
+    }
+
+    /**
+     * Writes the moves of an optimal path between two boards whose distance is known
+     * @param from the packed state the path starts on
+     * @param to the packed state the path ends on
+     * @param length the number of moves between them
+     * @param moves array receiving the moves
+     * @param at index in moves of the first move of the path
+     */
+    private void solvePiece(long[] from, long[] to, int length, byte[] moves, int at){
+
+        Heuristic heuristic = layout.isGoal(to, 0) ? heuristicFunction : metrics.timed(new ManhattanHeuristic(layout, to, 0));
+        if(length <= DIRECT_LENGTH){
+            long[] state = from.clone();
+            depthFirstSearch(state, layout.blankPosition(state, 0), to, heuristic, heuristic.estimate(state, 0), 0, length,
+                             Constants.NO_MOVE, moves, at);
+            return;
+        }
+
+        long[] middle = new long[layout.words];
+        if(boundedSearch(from, to, heuristic, length, middle) < 0)
+            reconstruct(from, middle, to, length, moves, at);
+    }
+
+    /**
+     * One iteration: a breadth-first search from a board that drops every board with f over the bound
+     * @param start the packed state to search from
+     * @param target the packed state to search for
+     * @param heuristic an estimate of the moves left to the target
+     * @param bound the highest f kept
+     * @param middle array receiving the packed state of the target's relay, if it is found
+     * @return -1 if the target was found (at depth bound), otherwise the lowest f that went over the bound
+     *         (stopped tells if a limit was reached)
+     */
+    private int boundedSearch(long[] start, long[] target, Heuristic heuristic, int bound, long[] middle){
+
+        int middleDepth = bound / 2;
+        int nextBound = Integer.MAX_VALUE;
+        current.clear();
+        relays.clear();
+
+        int handle = -current.lookupOrInsert(start, 0) - 1;
+        current.setHeuristic(handle, heuristic.estimate(start, 0));
+        current.setBlank(handle, layout.blankPosition(start, 0));
+        current.setMove(handle, 0);
+
+        for(int depth = 0; current.size() > 0; ++depth){
+
+            if(depth == middleDepth){   // Save the middle layer, each of its boards is its own relay
+                for(int i = 0; i < current.size(); ++i){
+                    current.copyState(i, child, 0);
+                    relays.lookupOrInsert(child, 0);
+                    current.setParent(i, i);
+                }
+            }
+
+            next.clear();
+            for(int i = 0; i < current.size(); ++i){
+
+                metrics.expanded++;
+                if(SearchLimits.isCheckDue(metrics.expanded)
+                        && (stopped = limits.check(metrics.expanded, memoryUsage())) != null)
+                    return nextBound;
+
+                current.copyState(i, child, 0);
+                int blank = current.getBlank(i);
+                int used = current.getMove(i);
+                int heuristicValue = current.getHeuristic(i);
+                for(int direction = 0; direction < 4; ++direction){
+
+                    if((used & (1 << direction)) != 0)     // Leads back to the layer above
+                        continue;
+                    int from = layout.neighbor(blank, direction);
+                    if(from < 0)
+                        continue;
+
+                    int tile = layout.tileAt(child, 0, from);
+                    layout.moveTile(child, 0, from, blank);
+                    int childHeuristic = heuristic.update(heuristicValue, child, 0, tile, from, blank);
+                    metrics.generated++;
+
+                    int totalCost = depth + 1 + childHeuristic;
+                    if(totalCost > bound){
+                        if(totalCost < nextBound)
+                            nextBound = totalCost;
+                    }
+                    else if(childHeuristic == 0 && layout.equals(child, 0, target, 0)){
+                        relays.copyState(current.getParent(i), middle, 0);
+                        return -1;
+                    }
+                    else{
+                        int back = 1 << Constants.opposite(direction);
+                        int found = next.lookupOrInsert(child, 0);
+                        if(found >= 0){     // Another parent already generated it
+                            next.setMove(found, next.getMove(found) | back);
+                            metrics.duplicates++;
+                        }
+                        else{
+                            found = -found - 1;
+                            next.setHeuristic(found, childHeuristic);
+                            next.setBlank(found, from);
+                            next.setMove(found, back);
+                            next.setParent(found, current.getParent(i));
+                        }
+                    }
+                    layout.moveTile(child, 0, blank, from);     // Unmake the move
+                }
+            }
+
+            if(next.size() > metrics.peakOpen)
+                metrics.peakOpen = next.size();
+            if(current.size() + next.size() + relays.size() > metrics.peakClosed)
+                metrics.peakClosed = current.size() + next.size() + relays.size();
+
+            ClosedSet expanded = current;
+            current = next;
+            next = expanded;
+        }
+        return nextBound;
+    }
+
+    /**
+     * Finds a path of an exact length between two boards, depth-first (used on short pieces of the solution)
+     * @param state the packed state reached so far, moved in place (left on the target if it is found)
+     * @param blank the position of the open slot of the state
+     * @param target the packed state to reach
+     * @param heuristic an estimate of the moves left to the target
+     * @param heuristicValue the heuristic value of the state
+     * @param g the number of moves made so far
+     * @param length the number of moves of the path
+     * @param lastMove the direction of the last move made (Constants.NO_MOVE at the start)
+     * @param moves array receiving the moves
+     * @param at index in moves of the first move of the path
+     * @return true if the target was reached
+     */
+    private boolean depthFirstSearch(long[] state, int blank, long[] target, Heuristic heuristic, int heuristicValue, int g,
+                                     int length, int lastMove, byte[] moves, int at){
+
+        if(g == length)
+            return heuristicValue == 0 && layout.equals(state, 0, target, 0);
+        metrics.expanded++;
+
+        int undo = lastMove == Constants.NO_MOVE ? Constants.NO_MOVE : Constants.opposite(lastMove);
+        for(int direction = 0; direction < 4; ++direction){
+
+            int from = layout.neighbor(blank, direction);
+            if(direction == undo || from < 0)
+                continue;
+
+            int tile = layout.tileAt(state, 0, from);
+            layout.moveTile(state, 0, from, blank);
+            int childHeuristic = heuristic.update(heuristicValue, state, 0, tile, from, blank);
+            metrics.generated++;
+            moves[at + g] = (byte) direction;
+
+            if(g + 1 + childHeuristic <= length
+                    && depthFirstSearch(state, from, target, heuristic, childHeuristic, g + 1, length, direction, moves, at))
+                return true;
+            layout.moveTile(state, 0, blank, from);     // Unmake the move
+        }
+        return false;
+    }
+
+    /**
+     * Grabs the memory held by the layers
+     * @return the size of their arrays, in bytes
+     */
+    private long memoryUsage(){
+        return current.memoryUsage() + next.memoryUsage() + relays.memoryUsage();
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * An estimate of the number of moves left to reach the goal, used to guide our search algorithms.
+ * A heuristic must never overestimate the moves left (it must be admissible), otherwise A* and IDA* may return
+ * solutions that are not the shortest. It must also be 0 on the goal board.
+ *
+ * A search evaluates its start board once with estimate(), then updates the value of every child from the value of
+ * its parent with update(), which should be much cheaper than evaluating the whole board again.
+ *
+ * Implementations are shared between searches (and threads), so they must not keep any per board state.
+ *
+ * A heuristic is consistent if its value changes by at most 1 per move. A* stays optimal without it (it only has to
+ * reopen boards), but some searches skip work when it holds (see WeightedSearch). HeuristicTest checks the claim.
+ */
+public interface Heuristic {
+
+    /**
+     * Evaluates a board from scratch
+     * @param state array holding the packed board state
+     * @param offset index of the first word of the state in the array
+     * @return the estimated number of moves left
+     */
+    int estimate(long[] state, int offset);
+
+    /**
+     * Computes the heuristic value of a board from the value of the board one move before it
+     * @param heuristic the heuristic value before the move
+     * @param state array holding the packed board state after the move
+     * @param offset index of the first word of the state in the array
+     * @param tile the tile that was moved
+     * @param from the position the tile moved from (the open slot after the move)
+     * @param to the position the tile moved to (the open slot before the move)
+     * @return the heuristic value after the move
+     */
+    int update(int heuristic, long[] state, int offset, int tile, int from, int to);
+
+    /**
+     * Tells if the value changes by at most 1 per move on every board
+     * @return true if the heuristic is known to be consistent, false if it may not be (the default)
+     */
+    default boolean isConsistent(){
+        return false;
+    }
+}
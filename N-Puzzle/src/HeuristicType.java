@@ -0,0 +1,57 @@
+/**
+ * The heuristics a search can be guided by. Each one knows how to create its Heuristic for a given board size.
+ */
+public enum HeuristicType {
+
+    MANHATTAN("manhattan") {            // Sum of the Manhattan distances of the tiles, no tables needed
+        public Heuristic create(BoardLayout layout){
+            return new ManhattanHeuristic(layout);
+        }
+    },
+    LINEAR_CONFLICT("linear") {         // Manhattan distance plus 2 moves per tile that must leave its goal row or column
+        public Heuristic create(BoardLayout layout){
+            return new LinearConflictHeuristic(layout);
+        }
+    },
+    WALKING_DISTANCE("walking") {       // Row and column walking distances, small tables built on first use (up to 4x4)
+        public Heuristic create(BoardLayout layout){
+            return new WalkingDistanceHeuristic(layout);
+        }
+    },
+    PATTERN_DATABASE("pdb") {           // Additive pattern databases, built once and then loaded from disk
+        public Heuristic create(BoardLayout layout){
+            return PatternDatabaseHeuristic.forLayout(layout);
+        }
+    };
+
+    private final String name;  // Name used to pick the heuristic on the command line
+
+    HeuristicType(String name){
+        this.name = name;
+    }
+
+    /**
+     * Creates the heuristic for boards of a given size
+     * @param layout the layout of the boards to evaluate
+     * @return the heuristic, which may be shared by many searches
+     */
+    public abstract Heuristic create(BoardLayout layout);
+
+    /**
+     * Finds a heuristic by its command line name
+     * @param name the name (ex: "manhattan", "linear", "walking", "pdb"), case does not matter
+     * @return the heuristic type
+     * @throws IllegalArgumentException if no heuristic has that name
+     */
+    public static HeuristicType fromName(String name){
+
+        for(HeuristicType type : values())
+            if(type.name.equalsIgnoreCase(name))
+                return type;
+        throw new IllegalArgumentException("Unknown heuristic: " + name);
+    }
+
+    public String toString(){
+        return name;
+    }
+}
@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/**
+ * Our iterative deepening A* (IDA*) algorithm. Unlike SearchTree, it keeps no closed set and no queue, so its memory use
+ * only grows with the length of the solution. This lets it solve 15-puzzle boards that would run A* out of memory.
+ *
+ * The algorithm runs a series of depth-first searches. Each one only follows paths whose total cost f = g + h stays within
+ * a bound. The first bound is the heuristic value of the start board, and every following bound is the lowest f that went
+ * over the previous one. Since the heuristic never overestimates, the first solution found is optimal.
+ *
+ * All moves are made and unmade in place on a single Board, and the heuristic value is updated incrementally on every move.
+ * The only move that is never tried is the one undoing the previous move.
+ *
+ * Limits (see SearchLimits) are checked every SearchLimits.CHECK_INTERVAL expansions. The memory checked is what the
+ * search holds: its board and its two path arrays, a few hundred bytes at most, so a memory budget in practice never stops
+ * IDA* (the recursion's stack frames are not counted). For partial results the search keeps the path to the board with the
+ * lowest heuristic value it has met, copied only when a new lowest value is met.
+ *
+ * With -Dnpuzzle.metrics.timers=true the time spent in the heuristic is kept (see SearchMetrics), the other phase
+ * timers stay at 0 since there is no closed set or queue.
+ */
+public class IterativeDeepeningSearch implements Solver {
+
+    private final BoardLayout layout;
+    private final Heuristic heuristicFunction;  // Estimate of the moves left from a board
+    private Board board;                // The one board every move is made on
+    private byte[] path = new byte[64]; // Directions of the moves on the current path, path[g] is the move made at depth g
+    private int bound;                  // Highest f explored by the current iteration
+    private int nextBound;              // Lowest f that went over the bound, which becomes the next bound
+    private int solutionLength;         // Depth of the goal once it has been found
+    private SearchLimits limits;        // Limits of the current search
+    private SearchResult.Status stopped;    // Limit that stopped the search, null if none did
+    private int bestHeuristic;          // Lowest heuristic value met so far
+    private byte[] bestPath = new byte[64]; // Moves leading to the board with that value
+    private int bestLength;             // Number of moves in bestPath
+    private final SearchMetrics metrics = new SearchMetrics();  // Boards expanded and generated and iterations, over all iterations
+
+    /**
+     * Creates a search guided by the Manhattan distance
+     * @param layout the layout of the boards to solve
+     */
+    public IterativeDeepeningSearch(BoardLayout layout){
+        this(layout, new ManhattanHeuristic(layout));
+    }
+
+    /**
+     * @param layout the layout of the boards to solve
+     * @param heuristicFunction the heuristic bounding the searches (it must never overestimate for the solutions to be optimal)
+     */
+    public IterativeDeepeningSearch(BoardLayout layout, Heuristic heuristicFunction){
+        this.layout = layout;
+        this.heuristicFunction = metrics.timed(heuristicFunction);
+    }
+
+    /**
+     * Solves a board with IDA*. Boards that fail the parity check (see Board.hasSolution) are rejected right away.
+     * @param startBoard the board to solve (not modified)
+     * @param limits the limits of the search
+     * @return the optimal solution (or the path to the closest board if a limit stopped the search) and the counters of the search
+     */
+    public SearchResult solve(Board startBoard, SearchLimits limits){
+
+        this.limits = limits;
+        stopped = null;
+        metrics.start();
+        if(!startBoard.hasSolution())
+            return new SearchResult(false, null, metrics.finish(-1));
+
+        board = new Board(layout, startBoard.getBoardState(), 0);
+        int heuristic = board.computeHeuristic(heuristicFunction);
+        bound = heuristic;
+        bestHeuristic = heuristic;
+        bestLength = 0;
+
+        while(true){
+            nextBound = Integer.MAX_VALUE;
+            metrics.iterations++;
+            if(depthFirstSearch(0, heuristic, Constants.NO_MOVE)){
+                byte[] moves = new byte[solutionLength];
+                System.arraycopy(path, 0, moves, 0, solutionLength);
+                return new SearchResult(true, moves, metrics.finish(solutionLength));
+            }
+            if(stopped != null){
+                byte[] moves = limits.isPartialResults() ? Arrays.copyOf(bestPath, bestLength) : null;
+                return new SearchResult(stopped, moves, metrics.finish(-1));
+            }
+            bound = nextBound;
+        }
+    }
+
+    /**
+     * One level of the depth-first search. The board holds the state reached after the moves path[0] to path[g - 1].
+     * @param g the number of moves made so far
+     * @param heuristic the heuristic value of the board
+     * @param lastMove the direction of the last move made (Constants.NO_MOVE at the start board)
+     * @return true if the goal was found below this board (the board is then left on the goal), false otherwise
+     *         (stopped tells if a limit was reached, the board is then left where the search stopped)
+     */
+    private boolean depthFirstSearch(int g, int heuristic, int lastMove){
+
+        int totalCost = g + heuristic;
+        if(totalCost > bound){
+            if(totalCost < nextBound)
+                nextBound = totalCost;
+            return false;
+        }
+        if(heuristic == 0 && board.isGoal()){
+            solutionLength = g;
+            return true;
+        }
+        if(heuristic < bestHeuristic){
+            bestHeuristic = heuristic;
+            bestPath = g <= bestPath.length ? bestPath : Arrays.copyOf(bestPath, path.length);
+            System.arraycopy(path, 0, bestPath, 0, g);
+            bestLength = g;
+        }
+
+        metrics.expanded++;
+        if(SearchLimits.isCheckDue(metrics.expanded) && (stopped = limits.check(metrics.expanded, memoryUsage())) != null)
+            return false;
+        if(g == path.length)
+            path = Arrays.copyOf(path, path.length * 2);
+
+        int undo = lastMove == Constants.NO_MOVE ? Constants.NO_MOVE : Constants.opposite(lastMove);
+        for(int direction = 0; direction < 4; ++direction){
+
+            if(direction == undo)
+                continue;
+
+            int zero = board.getFreeSpacePosition();
+            int from = layout.neighbor(zero, direction);
+            if(from < 0)
+                continue;
+
+            int tile = board.makeMove(direction);
+            metrics.generated++;
+            path[g] = (byte) direction;
+
+            if(depthFirstSearch(g + 1, board.heuristicAfterMove(heuristicFunction, heuristic, tile, from, zero), direction))
+                return true;
+            if(stopped != null)
+                return false;
+
+            board.makeMove(Constants.opposite(direction));  // Unmake the move
+        }
+        return false;
+    }
+
+    /**
+     * Grabs the memory held by the search: the board it moves on and its path arrays
+     * @return the size of their arrays, in bytes
+     */
+    private long memoryUsage(){
+        return layout.words * 8L + path.length + bestPath.length;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * The Manhattan distance plus linear conflicts. Two tiles are in a linear conflict when they are both in their goal row
+ * (or column) but in the wrong order: one of them has to leave the line to let the other one pass, which costs 2 moves
+ * that the Manhattan distance does not count.
+ *
+ * For every row (and column) we count the fewest tiles that must leave it so that the tiles left in their goal line are
+ * in order, which is the number of such tiles minus the longest increasing run (subsequence) of their goal columns (rows).
+ * That run is found with a patience sort kept in the bits of a single long, so nothing is allocated.
+ *
+ * A move only changes two lines: a tile moving up or down leaves one row and enters another (the order of its column
+ * does not change), and a tile moving sideways changes two columns. Updates therefore only look at those two lines.
+ */
+public class LinearConflictHeuristic implements Heuristic {
+
+    private final BoardLayout layout;
+    private final int edgeLength;
+
+    /**
+     * @param layout the layout of the boards to evaluate
+     */
+    public LinearConflictHeuristic(BoardLayout layout){
+        this.layout = layout;
+        this.edgeLength = layout.edgeLength;
+    }
+
+    public boolean isConsistent(){
+        return true;        // The moved tile's distance changes by 1, and its goal line's conflicts by 0 or 2 the other way
+    }
+
+    public int estimate(long[] state, int offset){
+
+        int totalHeuristic = 0;
+        for(int position = 0; position < layout.boardSize; ++position)
+            totalHeuristic += layout.distance(layout.tileAt(state, offset, position), position);
+
+        for(int line = 0; line < edgeLength; ++line)
+            totalHeuristic += 2 * (lineConflicts(state, offset, line, true, -1, 0, -1) + lineConflicts(state, offset, line, false, -1, 0, -1));
+        return totalHeuristic;
+    }
+
+    public int update(int heuristic, long[] state, int offset, int tile, int from, int to){
+
+        boolean vertical = Math.abs(from - to) == edgeLength;   // A tile moving up or down changes rows, not columns
+        int fromLine = vertical ? from / edgeLength : from % edgeLength;
+        int toLine = vertical ? to / edgeLength : to % edgeLength;
+
+        // The lines before the move are read from the board after it, with the tile put back where it came from
+        int before = lineConflicts(state, offset, fromLine, vertical, from, tile, to) + lineConflicts(state, offset, toLine, vertical, from, tile, to);
+        int after = lineConflicts(state, offset, fromLine, vertical, -1, 0, -1) + lineConflicts(state, offset, toLine, vertical, -1, 0, -1);
+        return layout.heuristicAfterMove(heuristic, tile, from, to) + 2 * (after - before);
+    }
+
+    /**
+     * Counts the fewest tiles that must leave a line for the tiles in their goal line to be in order
+     * @param state array holding the packed board state
+     * @param offset index of the first word of the state in the array
+     * @param line the row or column
+     * @param row true for a row, false for a column
+     * @param movedPosition a position read as holding movedTile instead of its content (-1 for none)
+     * @param movedTile the tile read at movedPosition
+     * @param clearedPosition a position read as the open slot instead of its content (-1 for none)
+     * @return the number of tiles to remove
+     */
+    private int lineConflicts(long[] state, int offset, int line, boolean row, int movedPosition, int movedTile, int clearedPosition){
+
+        int first = row ? line * edgeLength : line;     // Positions of the line are first, first + step, ...
+        int step = row ? 1 : edgeLength;
+        int inLine = 0;         // Tiles of the line whose goal is in the line
+        long tails = 0;         // Bit v is set if some increasing run of length i ends with the i-th lowest set bit v (patience sort)
+
+        for(int i = 0, position = first; i < edgeLength; ++i, position += step){
+
+            int tile = position == movedPosition ? movedTile
+                     : position == clearedPosition ? 0 : layout.tileAt(state, offset, position);
+            if(tile == 0)
+                continue;
+            int goal = tile - 1;
+            if((row ? goal / edgeLength : goal % edgeLength) != line)
+                continue;
+
+            int value = row ? goal % edgeLength : goal / edgeLength;    // Where the tile must end up along the line
+            inLine++;
+            long higher = tails & (-2L << value);               // Runs ending above the value, the lowest one now ends with it
+            tails = (tails & ~(higher & -higher)) | (1L << value);
+        }
+        return inLine - Long.bitCount(tails);
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Loads a SolverServer with boards and reports its throughput and latency.
+ *
+ * Every connection runs on its own thread and pipelines its requests: up to a window of requests is sent without
+ * waiting for results, and a new one is sent each time a result comes back. The latency of a request is the time
+ * from its send to its result. The boards are random walks from the goal, from a fixed seed per connection, so runs
+ * can be compared.
+ *
+ * Usage: java TilesDriver loadtest [port] [connections] [requestsPerConnection] [window] [edgeLength] [walkLength] [timeoutMillis]
+ */
+public class LoadTestClient {
+
+    private final String host;
+    private final int port;
+    private final int requests;         // Requests sent per connection
+    private final int window;           // Requests in flight per connection
+    private final int edgeLength;
+    private final int walkLength;       // Random moves per board
+    private final long timeoutMillis;   // Sent with every request
+
+    /**
+     * @param host the host of the server
+     * @param port the port of the server
+     * @param requests the requests sent per connection
+     * @param window the requests each connection keeps in flight
+     * @param edgeLength the edge length of the boards
+     * @param walkLength the random moves made from the goal per board
+     * @param timeoutMillis the timeout sent with every request
+     */
+    public LoadTestClient(String host, int port, int requests, int window, int edgeLength, int walkLength, long timeoutMillis){
+        this.host = host;
+        this.port = port;
+        this.requests = requests;
+        this.window = window;
+        this.edgeLength = edgeLength;
+        this.walkLength = walkLength;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : SolverServer.DEFAULT_PORT;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int window = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int edgeLength = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+        int walkLength = args.length > 5 ? Integer.parseInt(args[5]) : 100;
+        long timeout = args.length > 6 ? Long.parseLong(args[6]) : 1000;
+
+        LoadTestClient client = new LoadTestClient("localhost", port, requests, window, edgeLength, walkLength, timeout);
+        client.run(connections);
+    }
+
+    /**
+     * Runs every connection at once and prints the report once they are all done
+     * @param connections the number of connections
+     * @throws InterruptedException if interrupted while waiting for the connections
+     */
+    public void run(int connections) throws InterruptedException {
+
+        Connection[] workers = new Connection[connections];
+        Thread[] threads = new Thread[connections];
+        long start = System.nanoTime();
+        for(int i = 0; i < connections; ++i){
+            workers[i] = new Connection(i);
+            threads[i] = new Thread(workers[i], "load-" + i);
+            threads[i].start();
+        }
+        for(Thread thread : threads)
+            thread.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = new long[0];
+        Map<String, Integer> statuses = new TreeMap<>();
+        int failed = 0;
+        for(Connection worker : workers){
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + worker.received);
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.received);
+            worker.statuses.forEach((status, count) -> statuses.merge(status, count, Integer::sum));
+            if(worker.failure != null){
+                failed++;
+                System.err.println("Connection failed: " + worker.failure);
+            }
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf(Locale.ROOT, "%d results over %d connections (%d failed) in %.2f s: %.1f results/s%n",
+                          latencies.length, connections, failed, seconds, latencies.length / seconds);
+        if(latencies.length > 0)
+            System.out.printf(Locale.ROOT, "Latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n", percentile(latencies, 0.50),
+                              percentile(latencies, 0.90), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+        System.out.println("Results: " + statuses);
+    }
+
+    /**
+     * Grabs a percentile of sorted latencies
+     * @return the latency in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction){
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Shuffles a board with a random walk from the goal, so it can always be solved
+     * @param random the source of the moves
+     * @return the board as a string (tiles separated by commas)
+     */
+    private String randomBoard(Random random){
+
+        BoardLayout layout = BoardLayout.forEdgeLength(edgeLength);
+        long[] goal = new long[layout.words];
+        layout.copyGoal(goal, 0);
+        Board board = new Board(layout, goal, 0);
+        for(int move = 0; move < walkLength; ++move)
+            board.makeMove(random.nextInt(4));     // A move off the board does nothing
+
+        StringBuilder line = new StringBuilder();
+        for(int i = 0; i < layout.edgeLength; ++i)
+            for(int j = 0; j < layout.edgeLength; ++j)
+                line.append(line.length() > 0 ? "," : "").append(board.getTile(i, j));
+        return line.toString();
+    }
+
+    /**
+     * One connection: this thread reads the results while a second thread sends the requests, at most window ahead
+     */
+    private final class Connection implements Runnable {
+
+        private final int id;
+        private final long[] latencies = new long[requests];
+        private final Map<String, Integer> statuses = new TreeMap<>();
+        private final ConcurrentLinkedQueue<Long> sendTimes = new ConcurrentLinkedQueue<>();  // Of the requests in flight, in order
+        private final Semaphore inFlight = new Semaphore(window);
+        private int received;
+        private volatile Exception failure;
+
+        Connection(int id){
+            this.id = id;
+        }
+
+        public void run(){
+
+            try(Socket socket = new Socket(host, port);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))){
+
+                socket.setTcpNoDelay(true);
+                Thread sender = new Thread(() -> send(out), "load-" + id + "-sender");
+                sender.start();
+
+                while(received < requests){
+                    String line = in.readLine();
+                    if(line == null)
+                        throw new IOException("The server closed the connection after " + received + " results");
+                    latencies[received++] = System.nanoTime() - sendTimes.poll();
+                    inFlight.release();
+                    statuses.merge(line.split(" ", 2)[0], 1, Integer::sum);
+                }
+                sender.join();
+            }
+            catch(IOException | InterruptedException e){
+                if(failure == null)
+                    failure = e;
+            }
+        }
+
+        /**
+         * Sends every request, waiting whenever window requests are in flight
+         */
+        private void send(Writer out){
+
+            Random random = new Random(1000 + id);
+            try{
+                for(int i = 0; i < requests; ++i){
+                    String request = randomBoard(random) + " " + timeoutMillis + "\n";
+                    if(!inFlight.tryAcquire()){
+                        out.flush();            // Let the server see what was sent before waiting on it
+                        inFlight.acquire();
+                    }
+                    sendTimes.add(System.nanoTime());
+                    out.write(request);
+                }
+                out.flush();
+            }
+            catch(IOException | InterruptedException e){
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * The Manhattan distance: the sum over every tile (not the open slot) of the number of rows and columns between
+ * the tile and its goal position. A move only changes the distance of the tile that moved, so updates take constant time.
+ *
+ * The distance is usually measured to the goal board, but it can be measured to any other board as well
+ * (BidirectionalSearch uses this to search backwards from the goal toward the start board).
+ */
+public class ManhattanHeuristic implements Heuristic {
+
+    private final BoardLayout layout;
+    private final int[] distance;   // Distance of tile t at position p from its target position, at [t * boardSize + p] (null for the goal)
+
+    /**
+     * Creates the Manhattan distance to the goal board
+     * @param layout the layout of the boards to evaluate
+     */
+    public ManhattanHeuristic(BoardLayout layout){
+        this.layout = layout;
+        this.distance = null;   // The goal distances are precomputed in the layout (see BoardLayout.distance)
+    }
+
+    /**
+     * Creates the Manhattan distance to any board
+     * @param layout the layout of the boards to evaluate
+     * @param target array holding the packed state of the board to measure the distance to
+     * @param offset index of the first word of the state in the array
+     */
+    public ManhattanHeuristic(BoardLayout layout, long[] target, int offset){
+
+        this.layout = layout;
+        int n = layout.boardSize;
+        int edgeLength = layout.edgeLength;
+        distance = new int[n * n];
+        for(int targetPosition = 0; targetPosition < n; ++targetPosition){
+            int tile = layout.tileAt(target, offset, targetPosition);
+            if(tile == 0)
+                continue;
+            for(int position = 0; position < n; ++position)
+                distance[tile * n + position] = Math.abs(position / edgeLength - targetPosition / edgeLength)
+                                              + Math.abs(position % edgeLength - targetPosition % edgeLength);
+        }
+    }
+
+    /**
+     * Checks if the distance is measured to the goal board (its moves are then in the layout's table, see BoardLayout.distance)
+     * @return true for the distance to the goal, false for the distance to another board
+     */
+    boolean isToGoal(){
+        return distance == null;
+    }
+
+    public boolean isConsistent(){
+        return true;        // Only the moved tile's distance changes, by 1
+    }
+
+    public int estimate(long[] state, int offset){
+
+        int totalHeuristic = 0;
+        for(int position = 0; position < layout.boardSize; ++position){
+            int tile = layout.tileAt(state, offset, position);
+            totalHeuristic += distance == null ? layout.distance(tile, position) : distance[tile * layout.boardSize + position];
+        }
+        return totalHeuristic;
+    }
+
+    public int update(int heuristic, long[] state, int offset, int tile, int from, int to){
+
+        if(distance == null)
+            return layout.heuristicAfterMove(heuristic, tile, from, to);
+        return heuristic + distance[tile * layout.boardSize + to] - distance[tile * layout.boardSize + from];
+    }
+}
@@ -0,0 +1,431 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Our parallel A* algorithm (HDA*, hash distributed A*). A single search runs on several worker threads: every board is
+ * owned by one worker, picked from the hash of its state, and only its owner ever stores or expands it. Each worker has
+ * its own bucket queue and its own closed set shard, so the search itself takes no locks.
+ *
+ * When a worker expands a board, each child is sent to its owner. Children are collected in a batch per owner and a
+ * full batch is pushed to the owner's mailbox (a lock-free queue). The owner then handles the child exactly like
+ * SearchTree does: it is added to its closed set shard and queue, or its cost is lowered if a shorter path was found.
+ * Parents are kept across shards as references (handle * workers + owner), which is how the path is rebuilt at the end.
+ *
+ * Finding the goal does not end the search: another worker may still hold a board on a shorter path. The cost of the best
+ * goal found (the incumbent) is shared, and workers only expand boards whose f = g + h is below it. A worker with nothing
+ * left below the incumbent goes idle. The search is over once every worker is idle and no batch is in flight: every
+ * board left then has an f of at least the incumbent, so the incumbent is optimal (the heuristic never overestimates).
+ *
+ * That last check must not be fooled by a batch that is received and answered between two reads, so it uses three
+ * shared counters:
+ *      inFlight    children sent but not yet handled by their owner (raised before a batch is pushed)
+ *      idleWorkers workers with nothing to expand
+ *      activity    raised every time an idle worker wakes up, after it leaves idleWorkers and before it handles anything
+ * The check reads activity, then idleWorkers and inFlight, then activity again. A worker waking up between the two
+ * activity reads has either left idleWorkers before they were read (so not every worker is idle) or raises activity
+ * before the second read, so a check that sees every worker idle, nothing in flight and the same activity both times
+ * knows that the reads describe the same moment, and that nothing can happen after it.
+ *
+ * A worker that throws ends the search for every worker, and solve throws in turn once they have all stopped.
+ *
+ * Limits (see SearchLimits) are checked by every worker against its own share: its boards expanded and the memory of its
+ * shard, times the number of workers (the hash spreads the boards evenly). The first worker to reach one ends the search.
+ *
+ * Every worker counts its own work in its own SearchMetrics, with no sharing; they are summed once the workers have stopped.
+ */
+public class ParallelSearchTree implements Solver {
+
+    private static final int BATCH_SIZE = 128;          // Children per batch sent to another worker
+    private static final int FLUSH_INTERVAL = 32;       // Expansions between flushes of the partly filled batches
+    private static final long IDLE_PARK_NANOS = 20000;  // Pause of an idle worker before it checks its mailbox again
+
+    private final BoardLayout layout;
+    private final Heuristic heuristic;
+    private final Worker[] workers;
+    private final SearchMetrics metrics = new SearchMetrics();  // Counters of every worker, summed once they have all stopped
+
+    // Shared state of the running search
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+    private final AtomicLong activity = new AtomicLong();
+    private volatile int incumbent;         // Cost of the best goal found so far (Integer.MAX_VALUE if none)
+    private volatile int goalReference;     // Reference (handle * workers + owner) of that goal
+    private volatile boolean finished;      // Set once the search is over
+    private volatile Throwable failure;     // First exception thrown by a worker, null if none did
+    private SearchLimits limits;            // Limits of the current search
+    private volatile SearchResult.Status stopped;   // Limit that stopped the search, null if none did
+
+    /**
+     * Creates a search using one worker per available processor
+     * @param layout the layout of the boards to solve
+     * @param heuristic the heuristic guiding the search
+     */
+    public ParallelSearchTree(BoardLayout layout, Heuristic heuristic){
+        this(layout, heuristic, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param layout the layout of the boards to solve
+     * @param heuristic the heuristic guiding the search (it must never overestimate for the solutions to be optimal)
+     * @param threads the number of worker threads
+     */
+    public ParallelSearchTree(BoardLayout layout, Heuristic heuristic, int threads){
+
+        this.layout = layout;
+        this.heuristic = heuristic;
+        workers = new Worker[Math.max(1, threads)];
+        for(int i = 0; i < workers.length; ++i)
+            workers[i] = new Worker(i);
+    }
+
+    /**
+     * Solves a board with HDA*. Boards that fail the parity check (see Board.hasSolution) are rejected right away.
+     * The worker threads are started for this board and have all stopped when this returns.
+     * @param startBoard the board to solve (not modified)
+     * @param limits the limits of the search
+     * @return the optimal solution (or the path to the closest board if a limit stopped the search) and the counters of
+     *         every worker
+     */
+    public SearchResult solve(Board startBoard, SearchLimits limits){
+
+        this.limits = limits;
+        stopped = null;
+        metrics.start();
+        if(!startBoard.hasSolution())
+            return new SearchResult(false, null, metrics.finish(-1));
+
+        inFlight.set(0);
+        idleWorkers.set(0);
+        activity.set(0);
+        incumbent = Integer.MAX_VALUE;
+        goalReference = ClosedSet.NO_PARENT;
+        finished = false;
+        failure = null;
+        for(Worker worker : workers)
+            worker.reset();
+
+        long[] state = startBoard.getBoardState();
+        Worker owner = workers[ownerOf(state, 0)];
+        owner.receive(state, 0, 0, startBoard.computeHeuristic(heuristic), startBoard.getFreeSpacePosition(),
+                      Constants.NO_MOVE, ClosedSet.NO_PARENT);
+
+        Thread[] threads = new Thread[workers.length];
+        for(int i = 0; i < workers.length; ++i){
+            threads[i] = new Thread(workers[i], "hda-worker-" + i);
+            threads[i].start();
+        }
+        try{
+            for(Thread thread : threads)
+                thread.join();
+        }
+        catch(InterruptedException e){
+            finished = true;
+            Thread.currentThread().interrupt();
+            return new SearchResult(SearchResult.Status.CANCELLED, null, metrics.finish(-1));
+        }
+        if(failure != null)
+            throw new IllegalStateException("A worker of the parallel search failed", failure);
+
+        for(Worker worker : workers){
+            worker.metrics.peakClosed = worker.closedSet.size();
+            metrics.add(worker.metrics);
+        }
+        metrics.iterations = 1;
+        if(stopped != null){
+            byte[] moves = limits.isPartialResults() ? rebuildPath(closestReference()) : null;
+            return new SearchResult(stopped, moves, metrics.finish(-1));
+        }
+        if(goalReference == ClosedSet.NO_PARENT)      // Every board was expanded without reaching the goal
+            return new SearchResult(SearchResult.Status.UNSOLVABLE, null, metrics.finish(-1));
+        byte[] moves = rebuildPath(goalReference);
+        return new SearchResult(true, moves, metrics.finish(moves.length));
+    }
+
+    /**
+     * Finds the board with the lowest heuristic value over every shard (the workers have all stopped)
+     * @return its reference (handle * workers + owner)
+     */
+    private int closestReference(){
+
+        int bestReference = ClosedSet.NO_PARENT;
+        int bestValue = Integer.MAX_VALUE;
+        for(Worker worker : workers)
+            for(int handle = 0; handle < worker.closedSet.size(); ++handle)
+                if(worker.closedSet.getHeuristic(handle) < bestValue){
+                    bestValue = worker.closedSet.getHeuristic(handle);
+                    bestReference = handle * workers.length + worker.id;
+                }
+        return bestReference;
+    }
+
+    /**
+     * Picks the worker owning a board. The high bits of the hash are used, since each closed set shard indexes its table
+     * with the low bits.
+     */
+    private int ownerOf(long[] state, int offset){
+        return (int) (((layout.hash(state, offset) >>> 16) * (long) workers.length) >>> 16);
+    }
+
+    /**
+     * Lowers the incumbent if a goal reached with a lower cost is found
+     */
+    private synchronized void reportGoal(int cost, int reference){
+        if(cost < incumbent){
+            goalReference = reference;
+            incumbent = cost;
+        }
+    }
+
+    /**
+     * Follows the parent references from a board (the goal, or the closest board) back to the start board (the workers
+     * have all stopped)
+     * @param target the reference of the last board of the path
+     * @return the directions of the moves of the path, in order
+     */
+    private byte[] rebuildPath(int target){
+
+        int length = 0;
+        for(int reference = target; reference != ClosedSet.NO_PARENT; length++)
+            reference = workers[reference % workers.length].closedSet.getParent(reference / workers.length);
+
+        byte[] moves = new byte[length - 1];
+        for(int reference = target, i = length - 2; i >= 0; --i){
+            ClosedSet shard = workers[reference % workers.length].closedSet;
+            moves[i] = (byte) shard.getMove(reference / workers.length);
+            reference = shard.getParent(reference / workers.length);
+        }
+        return moves;
+    }
+
+    /**
+     * Children sent from one worker to another in one go
+     */
+    private static final class Batch {
+
+        final long[] states;                            // Packed state of every child
+        final int[] fields = new int[BATCH_SIZE * 5];   // Cost, heuristic, open slot, move and parent reference of every child
+        int count;
+
+        Batch(int words){
+            states = new long[BATCH_SIZE * words];
+        }
+    }
+
+    /**
+     * One worker thread: the owner of one shard of the boards
+     */
+    private final class Worker implements Runnable {
+
+        private final int id;
+        private final ClosedSet closedSet;
+        private final BucketQueue open = new BucketQueue();
+        private final SuccessorBuffer successors;
+        private final long[] parentState;
+        private final ConcurrentLinkedQueue<Batch> mailbox = new ConcurrentLinkedQueue<>();
+        private final Batch[] outgoing = new Batch[workers.length];     // Batch being filled for every other worker
+        private boolean idle;
+        final SearchMetrics metrics = new SearchMetrics();     // Counters of this worker only
+
+        Worker(int id){
+            this.id = id;
+            closedSet = new ClosedSet(layout);
+            successors = new SuccessorBuffer(layout, metrics.timed(heuristic));
+            parentState = new long[layout.words];
+        }
+
+        void reset(){
+            closedSet.clear();
+            open.clear();
+            mailbox.clear();
+            Arrays.fill(outgoing, null);
+            idle = false;
+            metrics.start();
+        }
+
+        /**
+         * Runs the worker until the search is over. An exception ends the search for every worker (see solve).
+         */
+        public void run(){
+
+            try{
+                work();
+            }
+            catch(RuntimeException | Error e){
+                if(failure == null)
+                    failure = e;
+                finished = true;
+            }
+        }
+
+        private void work(){
+
+            int sinceFlush = 0;
+            while(!finished){
+
+                readMailbox();
+                if(open.minKey() < incumbent){
+                    wake();
+                    expandNext();
+                    if(++sinceFlush == FLUSH_INTERVAL){
+                        flush();
+                        sinceFlush = 0;
+                    }
+                    continue;
+                }
+
+                // Nothing left below the incumbent: hand over every child we hold, then wait for work or for the end
+                flush();
+                sinceFlush = 0;
+                if(!idle){
+                    idle = true;
+                    idleWorkers.incrementAndGet();
+                }
+                long before = activity.get();       // Read before idleWorkers and inFlight, see the class comment
+                if(idleWorkers.get() == workers.length && inFlight.get() == 0 && activity.get() == before)
+                    finished = true;
+                else
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+
+        /**
+         * Handles every batch in the mailbox. An idle worker is marked active (and activity raised) before it handles
+         * anything, so a batch is never handled unseen by the termination check.
+         */
+        private void readMailbox(){
+
+            Batch batch;
+            while((batch = mailbox.poll()) != null){
+                wake();
+                for(int i = 0; i < batch.count; ++i){
+                    int f = i * 5;
+                    receive(batch.states, i * layout.words, batch.fields[f], batch.fields[f + 1], batch.fields[f + 2],
+                            batch.fields[f + 3], batch.fields[f + 4]);
+                }
+                inFlight.addAndGet(-batch.count);
+            }
+        }
+
+        /**
+         * Marks an idle worker active: it leaves idleWorkers before activity is raised, so a termination check can
+         * never see it idle and the same activity on both sides (see the class comment)
+         */
+        private void wake(){
+            if(idle){
+                idle = false;
+                idleWorkers.decrementAndGet();
+                activity.incrementAndGet();
+            }
+        }
+
+        /**
+         * Pops the best board of the queue and expands it, sending every child to its owner
+         */
+        private void expandNext(){
+
+            int totalCost = open.minKey();
+            int currentParent = open.pop();
+            int pathCost = closedSet.getCost(currentParent);
+            int heuristicValue = closedSet.getHeuristic(currentParent);
+            if(pathCost + heuristicValue != totalCost){     // Stale entry, a shorter path was found since
+                metrics.stalePops++;
+                return;
+            }
+
+            int reference = currentParent * workers.length + id;
+            closedSet.copyState(currentParent, parentState, 0);
+            if(layout.isGoal(parentState, 0)){
+                reportGoal(pathCost, reference);
+                return;
+            }
+
+            successors.generate(parentState, 0, closedSet.getBlank(currentParent), heuristicValue, closedSet.getMove(currentParent));
+            metrics.expanded++;
+            metrics.generated += successors.count;
+            if(SearchLimits.isCheckDue(metrics.expanded)){
+                SearchResult.Status status = limits.check(metrics.expanded * workers.length, closedSet.memoryUsage() * workers.length);
+                if(status != null){
+                    stopped = status;
+                    finished = true;
+                    return;
+                }
+            }
+
+            for(int i = 0; i < successors.count; ++i){
+                int offset = i * layout.words;
+                int cost = pathCost + 1;
+                if(cost + successors.heuristic[i] >= incumbent)     // Cannot lead to a shorter solution
+                    continue;
+                int owner = ownerOf(successors.states, offset);
+                if(owner == id)
+                    receive(successors.states, offset, cost, successors.heuristic[i], successors.blank[i], successors.move[i], reference);
+                else
+                    send(owner, offset, cost, successors.heuristic[i], successors.blank[i], successors.move[i], reference);
+            }
+            if(open.size() > metrics.peakOpen)
+                metrics.peakOpen = open.size();
+        }
+
+        /**
+         * Adds a child to the batch of its owner, pushing the batch once it is full
+         */
+        private void send(int owner, int offset, int cost, int heuristicValue, int blank, int move, int parent){
+
+            Batch batch = outgoing[owner];
+            if(batch == null)
+                batch = outgoing[owner] = new Batch(layout.words);
+
+            System.arraycopy(successors.states, offset, batch.states, batch.count * layout.words, layout.words);
+            int f = batch.count * 5;
+            batch.fields[f] = cost;
+            batch.fields[f + 1] = heuristicValue;
+            batch.fields[f + 2] = blank;
+            batch.fields[f + 3] = move;
+            batch.fields[f + 4] = parent;
+            if(++batch.count == BATCH_SIZE)
+                push(owner);
+        }
+
+        private void flush(){
+            for(int owner = 0; owner < outgoing.length; ++owner)
+                if(outgoing[owner] != null && outgoing[owner].count > 0)
+                    push(owner);
+        }
+
+        private void push(int owner){
+            Batch batch = outgoing[owner];
+            outgoing[owner] = null;
+            inFlight.addAndGet(batch.count);    // Counted before it can be seen, so it is never missed
+            workers[owner].mailbox.add(batch);
+        }
+
+        /**
+         * Adds a board this worker owns to its closed set shard and queue, or lowers its cost (same as in SearchTree)
+         */
+        void receive(long[] states, int offset, int cost, int heuristicValue, int blank, int move, int parent){
+
+            int child = closedSet.lookupOrInsert(states, offset);
+            if(child < 0){
+                child = -child - 1;
+                closedSet.setHeuristic(child, heuristicValue);
+                closedSet.setBlank(child, blank);
+                closedSet.setMove(child, move);
+                closedSet.setCost(child, cost);
+                closedSet.setParent(child, parent);
+                open.push(child, cost + heuristicValue);
+            }
+            else if(cost < closedSet.getCost(child)){
+                closedSet.setCost(child, cost);
+                closedSet.setParent(child, parent);
+                closedSet.setMove(child, move);
+                open.push(child, cost + closedSet.getHeuristic(child));
+                metrics.reopened++;
+            }
+            else
+                metrics.duplicates++;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+import java.util.Arrays;
+
+/**
+ * Our enhanced partial expansion A* (EPEA*). A* generates every child of a board it expands, but most of them have
+ * a higher f than the board and are never expanded before the goal is found: they only cost time and closed set memory.
+ * EPEA* only generates the children whose f equals the board's stored F, and puts the board back in the queue with the
+ * next higher f among its children. The board is expanded again (for those children) only if the search gets that far.
+ *
+ * With the Manhattan distance the change of f of a move is known without making it: only the moved tile's distance
+ * changes, by -1 or +1, so f changes by 0 or 2. An operator selection table holds that change for every position of the
+ * open slot, direction and tile, and an expansion reads one byte per direction to pick its children (and the board's
+ * next F). A board is expanded at most twice per path cost: once at F = f for the children that keep f, and once at
+ * F = f + 2 for the others. Other heuristics have no such table, so every child is evaluated and only the picked ones
+ * are added to the closed set and queue (plain partial expansion: it saves memory, not time).
+ *
+ * Like SearchTree the boards are held in a ClosedSet and queued by handle in a BucketQueue, keyed by F. Every board
+ * also keeps F - f, the change of f of the children it will generate next (DONE once it has no children left).
+ * A better path to a board resets it to 0, so the board is expanded again from scratch.
+ *
+ * Limits (see SearchLimits) are checked every SearchLimits.CHECK_INTERVAL expansions, partial expansions included.
+ */
+public class PartialExpansionSearch implements Solver {
+
+    private static final byte DONE = -1;        // Stored change of f of a board with no children left to generate
+
+    private final BoardLayout layout;
+    private final Heuristic heuristic;          // Estimate of the moves left from a board
+    private final byte[] operatorTable;         // Change of f of moving tile t into the open slot at b from direction d,
+                                                // at [(b * 4 + d) * boardSize + t] (null if the heuristic is not the Manhattan distance)
+    private final BucketQueue open = new BucketQueue();    // Closed set handles keyed by F = g + h + stored change
+    private final ClosedSet closedSet;
+    private byte[] storedDelta = new byte[1024];    // F - f per handle, DONE once fully expanded
+    private final long[] parentState;           // Scratch space holding the packed state of the board being expanded
+    private final long[] childState;            // Scratch space a child is made in (operator table only)
+    private final SuccessorBuffer successors;   // Reused buffer receiving every child (no operator table only)
+    private int goalHandle;                     // Handle of the goal once it has been popped, -1 before
+    private SearchLimits limits;                // Limits of the current search
+    private SearchResult.Status stopped;        // Limit that stopped the search, null if none did
+    private final SearchMetrics metrics = new SearchMetrics();
+
+    /**
+     * Creates a search guided by the Manhattan distance, with the operator selection table
+     * @param layout the layout of the boards to solve
+     */
+    public PartialExpansionSearch(BoardLayout layout){
+        this(layout, new ManhattanHeuristic(layout));
+    }
+
+    /**
+     * @param layout the layout of the boards to solve
+     * @param heuristic the heuristic to order the boards by (it must never overestimate for the solutions to be optimal).
+     *                  The operator selection table is only used for the Manhattan distance to the goal.
+     */
+    public PartialExpansionSearch(BoardLayout layout, Heuristic heuristic){
+
+        this.layout = layout;
+        this.heuristic = metrics.timed(heuristic);
+        operatorTable = heuristic instanceof ManhattanHeuristic && ((ManhattanHeuristic) heuristic).isToGoal()
+                        ? buildOperatorTable(layout) : null;
+        closedSet = new ClosedSet(layout);
+        parentState = new long[layout.words];
+        childState = new long[layout.words];
+        successors = new SuccessorBuffer(layout, this.heuristic);
+    }
+
+    /**
+     * Builds the operator selection table of the Manhattan distance
+     * @param layout the layout of the boards
+     * @return the change of f (0 or 2) of every move, at [(blank * 4 + direction) * boardSize + tile]
+     */
+    private static byte[] buildOperatorTable(BoardLayout layout){
+
+        int n = layout.boardSize;
+        byte[] table = new byte[n * 4 * n];
+        for(int blank = 0; blank < n; ++blank){
+            for(int direction = 0; direction < 4; ++direction){
+                int from = layout.neighbor(blank, direction);
+                if(from < 0)
+                    continue;
+                for(int tile = 1; tile < n; ++tile)     // The tile moves from its position to the open slot, and every move costs 1
+                    table[(blank * 4 + direction) * n + tile] = (byte) (1 + layout.distance(tile, blank) - layout.distance(tile, from));
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Solves a board with EPEA*. Boards that fail the parity check (see Board.hasSolution) are rejected right away.
+     * @param startBoard the board to solve (not modified)
+     * @param limits the limits of the search
+     * @return the optimal solution (or the path to the closest board if a limit stopped the search) and the counters of the search
+     */
+    public SearchResult solve(Board startBoard, SearchLimits limits){
+
+        this.limits = limits;
+        stopped = null;
+        goalHandle = -1;
+        metrics.start();
+        closedSet.clear();
+        open.clear();
+        if(!startBoard.hasSolution())
+            return new SearchResult(false, null, metrics.finish(-1));
+
+        startBoard.copyBoardState(parentState, 0);
+        int handle = -closedSet.lookupOrInsert(parentState, 0) - 1;
+        closedSet.setHeuristic(handle, heuristic.estimate(parentState, 0));
+        closedSet.setBlank(handle, startBoard.getFreeSpacePosition());
+        storedDelta[handle] = 0;
+        open.push(handle, closedSet.getHeuristic(handle));
+
+        search();
+        metrics.peakClosed = closedSet.size();
+        metrics.iterations = 1;
+        if(goalHandle >= 0)
+            return new SearchResult(SearchResult.Status.SOLVED, pathTo(goalHandle), metrics.finish(closedSet.getCost(goalHandle)));
+        if(stopped != null)
+            return new SearchResult(stopped, limits.isPartialResults() ? pathTo(closestHandle()) : null, metrics.finish(-1));
+        return new SearchResult(SearchResult.Status.UNSOLVABLE, null, metrics.finish(-1));
+    }
+
+    /**
+     * The EPEA* loop: pops the board with the lowest F, and generates only its children with that F
+     */
+    private void search(){
+
+        while(!open.isEmpty()){
+
+            int totalCost = open.minKey();
+            int currentParent = open.pop();
+            int pathCost = closedSet.getCost(currentParent);
+            int heuristicValue = closedSet.getHeuristic(currentParent);
+            int delta = storedDelta[currentParent];
+
+            // Pushed before a better path was found, or before the board was expanded again at a higher F. Skip it.
+            if(delta == DONE || pathCost + heuristicValue + delta != totalCost){
+                metrics.stalePops++;
+                continue;
+            }
+
+            closedSet.copyState(currentParent, parentState, 0);
+            if(heuristicValue == 0 && layout.isGoal(parentState, 0)){
+                goalHandle = currentParent;
+                return;
+            }
+
+            metrics.expanded++;
+            int nextDelta = operatorTable != null ? expandWithTable(currentParent, pathCost, heuristicValue, delta)
+                                                  : expandAll(currentParent, pathCost, heuristicValue, delta);
+            if(nextDelta == Integer.MAX_VALUE)
+                storedDelta[currentParent] = DONE;
+            else{                                   // Back in the queue for its children with the next F
+                storedDelta[currentParent] = (byte) nextDelta;
+                open.push(currentParent, pathCost + heuristicValue + nextDelta);
+            }
+            if(open.size() > metrics.peakOpen)
+                metrics.peakOpen = open.size();
+
+            if(SearchLimits.isCheckDue(metrics.expanded)
+                    && (stopped = limits.check(metrics.expanded, closedSet.memoryUsage() + storedDelta.length)) != null)
+                return;
+        }
+    }
+
+    /**
+     * Generates the children of a board whose change of f is the board's stored one, picked with the operator table
+     * @return the lowest change of f above the stored one among the children that were not generated (Integer.MAX_VALUE if none)
+     */
+    private int expandWithTable(int currentParent, int pathCost, int heuristicValue, int delta){
+
+        int blank = closedSet.getBlank(currentParent);
+        int lastMove = closedSet.getMove(currentParent);
+        int undo = lastMove == Constants.NO_MOVE ? Constants.NO_MOVE : Constants.opposite(lastMove);
+        int row = blank * 4 * layout.boardSize;
+        int nextDelta = Integer.MAX_VALUE;
+
+        for(int direction = 0; direction < 4; ++direction){
+
+            int from = layout.neighbor(blank, direction);
+            if(from < 0 || direction == undo)
+                continue;
+            int tile = layout.tileAt(parentState, 0, from);
+            int childDelta = operatorTable[row + direction * layout.boardSize + tile];
+            if(childDelta != delta && !(delta == 0 && childDelta < 0)){  // Lower f only comes from an inconsistent heuristic, added at once
+                if(childDelta > delta && childDelta < nextDelta)
+                    nextDelta = childDelta;
+                continue;
+            }
+
+            System.arraycopy(parentState, 0, childState, 0, layout.words);
+            layout.moveTile(childState, 0, from, blank);
+            metrics.generated++;
+            addChild(childState, 0, from, heuristicValue + childDelta - 1, direction, currentParent, pathCost + 1);
+        }
+        return nextDelta;
+    }
+
+    /**
+     * Evaluates every child of a board and adds the ones whose change of f is the board's stored one
+     * @return the lowest change of f above the stored one among the children that were not added (Integer.MAX_VALUE if none)
+     */
+    private int expandAll(int currentParent, int pathCost, int heuristicValue, int delta){
+
+        successors.generate(parentState, 0, closedSet.getBlank(currentParent), heuristicValue, closedSet.getMove(currentParent));
+        int nextDelta = Integer.MAX_VALUE;
+        for(int i = 0; i < successors.count; ++i){
+
+            int childDelta = 1 + successors.heuristic[i] - heuristicValue;
+            if(childDelta != delta && !(delta == 0 && childDelta < 0)){  // Lower f only comes from an inconsistent heuristic, added at once
+                if(childDelta > delta && childDelta < nextDelta)
+                    nextDelta = childDelta;
+                continue;
+            }
+            metrics.generated++;
+            addChild(successors.states, i * layout.words, successors.blank[i], successors.heuristic[i], successors.move[i],
+                     currentParent, pathCost + 1);
+        }
+        return nextDelta;
+    }
+
+    /**
+     * Adds a child to the closed set and queue, or records a better path to it
+     */
+    private void addChild(long[] state, int offset, int blank, int childHeuristic, int move, int parent, int cost){
+
+        int child = closedSet.lookupOrInsert(state, offset);
+        if(child < 0){
+            child = -child - 1;
+            if(child == storedDelta.length)
+                storedDelta = Arrays.copyOf(storedDelta, storedDelta.length * 2);
+            closedSet.setHeuristic(child, childHeuristic);
+            closedSet.setBlank(child, blank);
+            closedSet.setMove(child, move);
+            closedSet.setCost(child, cost);
+            closedSet.setParent(child, parent);
+            storedDelta[child] = 0;
+            open.push(child, cost + childHeuristic);
+        }
+        else if(cost < closedSet.getCost(child)){   // Expanded again from scratch with its new path cost
+            closedSet.setCost(child, cost);
+            closedSet.setParent(child, parent);
+            closedSet.setMove(child, move);
+            storedDelta[child] = 0;
+            open.push(child, cost + closedSet.getHeuristic(child));
+            metrics.reopened++;
+        }
+        else
+            metrics.duplicates++;
+    }
+
+    /**
+     * Rebuilds the moves leading from the start board to a board, following the parents in the closed set
+     * @param target the handle of the last board of the path
+     * @return the directions of the moves, in order
+     */
+    private byte[] pathTo(int target){
+
+        int length = 0;
+        for(int handle = target; closedSet.getParent(handle) != ClosedSet.NO_PARENT; handle = closedSet.getParent(handle))
+            length++;
+
+        byte[] moves = new byte[length];    // Filled backwards, from the target to the start board
+        for(int handle = target; closedSet.getParent(handle) != ClosedSet.NO_PARENT; handle = closedSet.getParent(handle))
+            moves[--length] = (byte) closedSet.getMove(handle);
+        return moves;
+    }
+
+    /**
+     * Finds the board of the closed set with the lowest heuristic value (the first one found on ties)
+     * @return its handle
+     */
+    private int closestHandle(){
+
+        int bestHandle = 0;
+        for(int handle = 1; handle < closedSet.size(); ++handle)
+            if(closedSet.getHeuristic(handle) < closedSet.getHeuristic(bestHandle))
+                bestHandle = handle;
+        return bestHandle;
+    }
+}
@@ -0,0 +1,424 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An additive (disjoint) pattern database heuristic. The tiles are split into groups (ex: 6-6-3 for the 15-puzzle), and for
+ * every group a table holds the exact number of moves of the group's own tiles needed to bring them home, for every
+ * placement of those tiles. Moves of the other tiles are free, so the values of the groups can be added and the sum
+ * never overestimates. It is far stronger than the Manhattan distance: on the 15-puzzle it cuts the boards expanded by
+ * several orders of magnitude.
+ *
+ * The tables are built once by a backward breadth-first search from the goal (see buildTable), which takes from a
+ * fraction of a second (3x3) to about twenty seconds (the two 6 tile groups of 4x4). They are then saved to a versioned binary file
+ * and memory-mapped on every later start, so only the pages that are actually used are read.
+ *
+ * Table layout:
+ *      The placement of a group with k tiles is indexed by the rank of the positions of its tiles as a partial permutation
+ *      (see PermutationRank), a dense index from 0 to n! / (n - k)! - 1 where n is the board size. No index is wasted on
+ *      two tiles sharing a position, so a 6 tile group of the 15-puzzle takes 5765760 entries instead of 16^6.
+ *      A table value is never below the Manhattan distance of the group, and differs from it by an even number of moves.
+ *      Every entry therefore only stores (value - Manhattan distance) / 2 in a nibble (two entries per byte), capped at 15.
+ *      Capping only lowers the value, so the heuristic stays admissible.
+ *
+ * File layout (big endian):
+ *      int magic ("NPDB"), int version, int edge length, int number of groups,
+ *      per group: int number of tiles followed by the tiles,
+ *      per group: the nibble-packed table (n! / (n - k)! entries)
+ */
+public class PatternDatabaseHeuristic implements Heuristic {
+
+    static final int FILE_MAGIC = 0x4E504442;      // "NPDB"
+    static final int FILE_VERSION = 2;             // Bumped whenever the file layout or the table contents change
+    static final int MAX_EDGE_LENGTH = 8;          // The search over a group uses a long as a bit mask of the board
+
+    private static final PatternDatabaseHeuristic[] DEFAULTS = new PatternDatabaseHeuristic[BoardLayout.MAX_EDGE_LENGTH + 1];
+
+    private final BoardLayout layout;
+    private final int[][] groups;       // Tiles of every group
+    private final int[] groupOf;        // Group of every tile (-1 for the open slot)
+    private final int[] slot;           // Index of every tile in its group
+    private final ByteBuffer tables;    // The nibble-packed tables (memory-mapped from the file when it could be written)
+    private final int[] tableOffset;    // Index of the first byte of every group's table in the buffer
+
+    /**
+     * Loads the tables of a partition from a file, building and saving them first if the file is missing or out of date
+     * @param layout the layout of the boards to evaluate
+     * @param groups the tiles of every group, every tile from 1 to boardSize - 1 must be in exactly one group
+     * @param file the file holding the tables
+     * @throws IllegalArgumentException if the groups do not split the tiles or a table would be too large
+     */
+    public PatternDatabaseHeuristic(BoardLayout layout, int[][] groups, Path file){
+
+        if(layout.edgeLength > MAX_EDGE_LENGTH)
+            throw new IllegalArgumentException("Pattern databases are only supported up to " + MAX_EDGE_LENGTH + "x" + MAX_EDGE_LENGTH);
+
+        this.layout = layout;
+        this.groups = new int[groups.length][];
+        groupOf = new int[layout.boardSize];
+        slot = new int[layout.boardSize];
+        Arrays.fill(groupOf, -1);
+
+        for(int g = 0; g < groups.length; ++g){
+            this.groups[g] = groups[g].clone();
+            if(groups[g].length > PermutationRank.MAX_PACKED_LENGTH || tableEntries(layout, groups[g].length) > Integer.MAX_VALUE / layout.boardSize)
+                throw new IllegalArgumentException("Group " + g + " has too many tiles for a " + layout.edgeLength + "x" + layout.edgeLength + " board");
+            for(int i = 0; i < groups[g].length; ++i){
+                int tile = groups[g][i];
+                if(tile <= 0 || tile >= layout.boardSize || groupOf[tile] >= 0)
+                    throw new IllegalArgumentException("Tile " + tile + " is not a tile of the board or is in more than one group");
+                groupOf[tile] = g;
+                slot[tile] = i;
+            }
+        }
+        for(int tile = 1; tile < layout.boardSize; ++tile)
+            if(groupOf[tile] < 0)
+                throw new IllegalArgumentException("Tile " + tile + " is not in any group");
+
+        tableOffset = new int[groups.length];
+        int offset = headerSize();
+        for(int g = 0; g < groups.length; ++g){
+            tableOffset[g] = offset;
+            offset += (int) ((tableEntries(layout, groups[g].length) + 1) / 2);
+        }
+
+        ByteBuffer loaded = load(file, offset);
+        tables = loaded != null ? loaded : buildAndSave(file, offset);
+    }
+
+    /**
+     * Grabs the pattern database of the default partition of a board size (see defaultPartition), shared by every search.
+     * The tables are kept in the directory given by the "npuzzle.pdb.dir" system property (Constants.PATTERN_DATABASE_DIRECTORY by default).
+     * @param layout the layout of the boards to evaluate
+     * @return the shared heuristic
+     */
+    public static synchronized PatternDatabaseHeuristic forLayout(BoardLayout layout){
+
+        if(DEFAULTS[layout.edgeLength] == null){
+            int[][] groups = defaultPartition(layout);
+            Path directory = Paths.get(System.getProperty("npuzzle.pdb.dir", Constants.PATTERN_DATABASE_DIRECTORY));
+            DEFAULTS[layout.edgeLength] = new PatternDatabaseHeuristic(layout, groups, directory.resolve(fileName(layout, groups)));
+        }
+        return DEFAULTS[layout.edgeLength];
+    }
+
+    /**
+     * Grabs the default split of the tiles of a board size into groups:
+     *      2x2: one group of 3 tiles (the table is then exact)
+     *      3x3: 4-4, the top left and bottom right halves
+     *      4x4: 6-6-3, the left block, the bottom right block and the rest of the top row
+     *      5x5 and beyond: groups of 4 tiles in row-major order, which keeps every table small enough to build quickly
+     * @param layout the layout of the boards
+     * @return the tiles of every group
+     */
+    public static int[][] defaultPartition(BoardLayout layout){
+
+        switch(layout.edgeLength){
+            case 2:
+                return new int[][] {{1, 2, 3}};
+            case 3:
+                return new int[][] {{1, 2, 4, 5}, {3, 6, 7, 8}};
+            case 4:
+                return new int[][] {{1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}};
+            default:
+                int tiles = layout.boardSize - 1;
+                int[][] groups = new int[(tiles + 3) / 4][];
+                for(int g = 0; g < groups.length; ++g){
+                    groups[g] = new int[Math.min(4, tiles - g * 4)];
+                    for(int i = 0; i < groups[g].length; ++i)
+                        groups[g][i] = g * 4 + i + 1;
+                }
+                return groups;
+        }
+    }
+
+    /**
+     * Adds up the Manhattan distance of every tile and the extra moves stored for the placement of every group
+     */
+    public int estimate(long[] state, int offset){
+
+        long[] positions = new long[groups.length];     // Positions of the tiles of every group, packed (see PermutationRank.rankPacked)
+        int totalHeuristic = 0;
+        for(int position = 0; position < layout.boardSize; ++position){
+            int tile = layout.tileAt(state, offset, position);
+            if(tile != 0){
+                totalHeuristic += layout.distance(tile, position);
+                positions[groupOf[tile]] |= (long) position << (6 * slot[tile]);
+            }
+        }
+        for(int g = 0; g < groups.length; ++g)
+            totalHeuristic += 2 * extraMoves(g, index(g, positions[g]));
+        return totalHeuristic;
+    }
+
+    /**
+     * Only the table of the group of the moved tile changes. The placement of the group before the move is found from
+     * its placement after the move, so a single pass over the board gives both table entries.
+     */
+    public int update(int heuristic, long[] state, int offset, int tile, int from, int to){
+
+        int group = groupOf[tile];
+        long positions = 0;
+        for(int position = 0; position < layout.boardSize; ++position){
+            int t = layout.tileAt(state, offset, position);
+            if(t != 0 && groupOf[t] == group)
+                positions |= (long) position << (6 * slot[t]);
+        }
+        long positionsBefore = positions ^ ((long) (from ^ to) << (6 * slot[tile]));
+        return layout.heuristicAfterMove(heuristic, tile, from, to)
+               + 2 * (extraMoves(group, index(group, positions)) - extraMoves(group, index(group, positionsBefore)));
+    }
+
+    /**
+     * Grabs the number of groups the tiles are split into
+     * @return the number of groups
+     */
+    public int getGroupCount(){
+        return groups.length;
+    }
+
+    /**
+     * Indexes the placement of a group
+     * @param group the group
+     * @param positions the positions of its tiles, packed (see PermutationRank.rankPacked)
+     * @return the index of the placement in the group's table
+     */
+    private int index(int group, long positions){
+        return (int) PermutationRank.rankPacked(positions, groups[group].length, layout.boardSize);
+    }
+
+    /**
+     * Reads a table entry
+     * @param group the group
+     * @param index the index of the placement of the group's tiles
+     * @return (table value - Manhattan distance of the group) / 2, capped at 15
+     */
+    private int extraMoves(int group, int index){
+
+        int packed = tables.get(tableOffset[group] + (index >>> 1));
+        return (index & 1) == 0 ? packed & 0xF : (packed >>> 4) & 0xF;
+    }
+
+    /**
+     * Maps the file and checks that it holds the tables of this partition
+     * @param file the file holding the tables
+     * @param size the expected size of the file
+     * @return the mapped tables, or null if the file is missing or does not match
+     */
+    private ByteBuffer load(Path file, int size){
+
+        if(!Files.isRegularFile(file))
+            return null;
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            if(channel.size() != size)
+                return null;
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if(buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION || buffer.getInt() != layout.edgeLength
+                    || buffer.getInt() != groups.length)
+                return null;
+            for(int[] group : groups){
+                if(buffer.getInt() != group.length)
+                    return null;
+                for(int tile : group)
+                    if(buffer.getInt() != tile)
+                        return null;
+            }
+            return buffer;
+        }
+        catch(IOException e){
+            System.err.println("Could not read pattern database " + file + " (" + e + "), rebuilding it.");
+            return null;
+        }
+    }
+
+    /**
+     * Builds every table and writes them to the file (through a temporary file, so a half written file is never loaded)
+     * @param file the file to write
+     * @param size the size of the file
+     * @return the tables, mapped from the file, or kept in memory if the file could not be written
+     */
+    private ByteBuffer buildAndSave(Path file, int size){
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(layout.edgeLength).putInt(groups.length);
+        for(int[] group : groups){
+            buffer.putInt(group.length);
+            for(int tile : group)
+                buffer.putInt(tile);
+        }
+        for(int[] group : groups){
+            System.err.println("Building the pattern database of tiles " + Arrays.toString(group) + " (done once)...");
+            buffer.put(buildTable(layout, group));
+        }
+        buffer.flip();
+
+        try{
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)){
+                while(buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            ByteBuffer mapped = load(file, size);
+            if(mapped != null)
+                return mapped;
+        }
+        catch(IOException e){
+            System.err.println("Could not save pattern database " + file + " (" + e + "), keeping it in memory.");
+        }
+        return buffer.rewind();
+    }
+
+    /**
+     * Builds the table of one group with a backward breadth-first search from the goal.
+     *
+     * A state of this search is the placement of the group's tiles plus the open slot. Only moves of the group's tiles
+     * are counted, so the open slot can wander through every position not held by the group for free: those positions
+     * form the region of the open slot, and a state only keeps the lowest position of that region. Every move then costs
+     * exactly 1 (a group tile next to the region slides into it), and a plain breadth-first search finds the cost of
+     * every state. The table keeps, for each placement, the lowest cost over the regions of the open slot.
+     *
+     * @param layout the layout of the board
+     * @param tiles the tiles of the group
+     * @return the nibble-packed table of the group
+     */
+    static byte[] buildTable(BoardLayout layout, int[] tiles){
+
+        int n = layout.boardSize;
+        int e = layout.edgeLength;
+        int k = tiles.length;
+        int entries = (int) tableEntries(layout, k);
+
+        long board = n == 64 ? -1L : (1L << n) - 1;    // Bit p is set for every position p of the board
+        long notFirstColumn = 0, notLastColumn = 0;
+        for(int position = 0; position < n; ++position){
+            if(position % e != 0)
+                notFirstColumn |= 1L << position;
+            if(position % e != e - 1)
+                notLastColumn |= 1L << position;
+        }
+
+        byte[] cost = new byte[entries];                    // Lowest cost found per placement (unsigned), -1 until reached
+        Arrays.fill(cost, (byte) -1);
+        long[] visited = new long[(int) (((long) entries * n + 63) >>> 6)];   // One bit per (placement, region)
+        int[] current = new int[1024];      // States (placement * n + lowest position of the region) at the current cost
+        int[] next = new int[1024];         // States found at the current cost + 1
+        int currentSize = 0, nextSize;
+
+        long startPositions = 0;
+        long occupied = 0;
+        for(int i = 0; i < k; ++i){
+            startPositions |= (long) (tiles[i] - 1) << (6 * i);
+            occupied |= 1L << (tiles[i] - 1);
+        }
+        int start = (int) PermutationRank.rankPacked(startPositions, k, n);
+        long startRegion = floodRegion(1L << (n - 1), board & ~occupied, e, notFirstColumn, notLastColumn);
+        int startState = start * n + Long.numberOfTrailingZeros(startRegion);
+        visited[startState >>> 6] |= 1L << startState;
+        cost[start] = 0;
+        current[currentSize++] = startState;
+
+        for(int depth = 0; currentSize > 0; ++depth){
+            nextSize = 0;
+            for(int s = 0; s < currentSize; ++s){
+
+                long positions = PermutationRank.unrankPacked(current[s] / n, k, n);
+                occupied = 0;
+                for(int i = 0; i < k; ++i)
+                    occupied |= 1L << ((positions >>> (6 * i)) & 63);
+                long region = floodRegion(1L << (current[s] % n), board & ~occupied, e, notFirstColumn, notLastColumn);
+
+                for(int i = 0; i < k; ++i){
+                    int position = (int) (positions >>> (6 * i)) & 63;
+                    long tile = 1L << position;
+                    long targets = region & (((tile << e) | (tile >>> e) | ((tile << 1) & notFirstColumn) | ((tile >>> 1) & notLastColumn)));
+                    while(targets != 0){
+                        int target = Long.numberOfTrailingZeros(targets);
+                        targets &= targets - 1;
+
+                        int childPlacement = (int) PermutationRank.rankPacked(positions ^ ((long) (position ^ target) << (6 * i)), k, n);
+                        long childRegion = floodRegion(tile, board & ~(occupied ^ tile ^ (1L << target)), e, notFirstColumn, notLastColumn);
+                        int child = childPlacement * n + Long.numberOfTrailingZeros(childRegion);
+                        if((visited[child >>> 6] & (1L << child)) != 0)
+                            continue;
+                        visited[child >>> 6] |= 1L << child;
+                        if(cost[childPlacement] == -1)
+                            cost[childPlacement] = (byte) (depth + 1);
+                        if(nextSize == next.length)
+                            next = Arrays.copyOf(next, nextSize * 2);
+                        next[nextSize++] = child;
+                    }
+                }
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+            currentSize = nextSize;
+        }
+
+        byte[] table = new byte[(entries + 1) / 2];
+        for(int placement = 0; placement < entries; ++placement){
+            if(cost[placement] == -1)       // Not reachable (only on boards with a single group, ex: 2x2)
+                continue;
+            long positions = PermutationRank.unrankPacked(placement, k, n);
+            int manhattan = 0;
+            for(int i = 0; i < k; ++i)
+                manhattan += layout.distance(tiles[i], (int) (positions >>> (6 * i)) & 63);
+            int extra = Math.min(15, ((cost[placement] & 0xFF) - manhattan) / 2);
+            table[placement >>> 1] |= (byte) ((placement & 1) == 0 ? extra : extra << 4);
+        }
+        return table;
+    }
+
+    /**
+     * Finds every position the open slot can reach without moving a group tile
+     * @param seed bit of the position of the open slot
+     * @param free bits of the positions not held by a group tile
+     * @return the bits of the region
+     */
+    private static long floodRegion(long seed, long free, int edgeLength, long notFirstColumn, long notLastColumn){
+
+        long region = seed, previous;
+        do{
+            previous = region;
+            region |= ((region << edgeLength) | (region >>> edgeLength) | ((region << 1) & notFirstColumn)
+                       | ((region >>> 1) & notLastColumn)) & free;
+        } while(region != previous);
+        return region;
+    }
+
+    private static long tableEntries(BoardLayout layout, int tiles){
+        return PermutationRank.partialCount(layout.boardSize, tiles);
+    }
+
+    private int headerSize(){
+        int size = 16;
+        for(int[] group : groups)
+            size += 4 + 4 * group.length;
+        return size;
+    }
+
+    /**
+     * Builds the file name of a partition, ex: pdb-3x3-1.2.4.5_3.6.7.8.bin
+     */
+    private static String fileName(BoardLayout layout, int[][] groups){
+
+        StringBuilder name = new StringBuilder("pdb-" + layout.edgeLength + "x" + layout.edgeLength + "-");
+        for(int g = 0; g < groups.length; ++g){
+            if(g > 0)
+                name.append('_');
+            for(int i = 0; i < groups[g].length; ++i)
+                name.append(i > 0 ? "." : "").append(groups[g][i]);
+        }
+        return name.append(".bin").toString();
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Maps permutations to dense integers and back (ranking and unranking), so that boards and tile placements can index flat
+ * tables and bit sets instead of being kept as keys in a hash table.
+ *
+ * The rank of a permutation is its number in lexicographic order, computed from its Lehmer code: the i-th digit is the
+ * number of values after position i that are lower than the value at position i. Digit i is read in linear time from a
+ * bit mask of the values already passed (lower values not passed yet = value - values passed that are lower), so ranking
+ * and unranking take linear time as long as the values fit in a long mask (below 64).
+ *
+ * A partial permutation (k distinct values out of n, ex: the positions of the k tiles of a pattern) is ranked the same
+ * way, with digit i in base n - i, which gives a dense index from 0 to n! / (n - k)! - 1.
+ *
+ * In lexicographic order, permutations 2j and 2j + 1 only differ by a swap of their last two values, so they have opposite
+ * parity. Ranks of permutations of a single parity can therefore be halved without collisions.
+ */
+public final class PermutationRank {
+
+    public static final int MAX_VALUES = 64;        // Values must fit in a long bit mask
+    public static final int MAX_FULL_LENGTH = 20;   // 20! is the largest factorial that fits in a long
+    public static final int MAX_PACKED_LENGTH = 10; // Values in a packed long, 6 bits each
+
+    private PermutationRank(){}
+
+    /**
+     * @param n the number of values
+     * @return n!
+     */
+    public static long factorial(int n){
+        return partialCount(n, n);
+    }
+
+    /**
+     * Counts the partial permutations of k values out of n
+     * @param n the number of values
+     * @param k the number of values picked
+     * @return n! / (n - k)!, or Long.MAX_VALUE if it does not fit in a long
+     */
+    public static long partialCount(int n, int k){
+
+        long count = 1;
+        for(int i = 0; i < k; ++i){
+            if(count > Long.MAX_VALUE / (n - i))
+                return Long.MAX_VALUE;
+            count *= n - i;
+        }
+        return count;
+    }
+
+    /**
+     * Ranks a permutation of 0 to n - 1
+     * @param permutation the values, n of them (n at most MAX_FULL_LENGTH)
+     * @return its lexicographic rank, from 0 to n! - 1
+     */
+    public static long rank(int[] permutation){
+        return rankPartial(permutation, permutation.length, permutation.length);
+    }
+
+    /**
+     * Rebuilds a permutation from its rank
+     * @param rank the lexicographic rank
+     * @param permutation receives the values, its length is n
+     */
+    public static void unrank(long rank, int[] permutation){
+        unrankPartial(rank, permutation.length, permutation.length, permutation);
+    }
+
+    /**
+     * Ranks a partial permutation
+     * @param values k distinct values from 0 to n - 1
+     * @param k the number of values
+     * @param n the number of possible values (at most MAX_VALUES)
+     * @return its lexicographic rank, from 0 to n! / (n - k)! - 1
+     */
+    public static long rankPartial(int[] values, int k, int n){
+
+        long rank = 0;
+        long passed = 0;        // Bit v is set once value v has been passed
+        for(int i = 0; i < k; ++i){
+            int value = values[i];
+            rank = rank * (n - i) + value - Long.bitCount(passed & ((1L << value) - 1));
+            passed |= 1L << value;
+        }
+        return rank;
+    }
+
+    /**
+     * Rebuilds a partial permutation from its rank
+     * @param rank the lexicographic rank
+     * @param k the number of values
+     * @param n the number of possible values (at most MAX_VALUES)
+     * @param values receives the k values
+     */
+    public static void unrankPartial(long rank, int k, int n, int[] values){
+
+        // The digits come out last first, so they are stored first and the values picked in a second pass
+        for(int i = k - 1; i >= 0; --i){
+            values[i] = (int) (rank % (n - i));
+            rank /= n - i;
+        }
+        long available = n == MAX_VALUES ? -1L : (1L << n) - 1;
+        for(int i = 0; i < k; ++i){
+            int value = select(available, values[i]);
+            values[i] = value;
+            available &= ~(1L << value);
+        }
+    }
+
+    /**
+     * Ranks a partial permutation packed in a long (so ranking in a search loop allocates nothing)
+     * @param packed the values, 6 bits each, value i in bits 6i to 6i + 5
+     * @param k the number of values (at most MAX_PACKED_LENGTH)
+     * @param n the number of possible values (at most MAX_VALUES)
+     * @return its lexicographic rank, from 0 to n! / (n - k)! - 1
+     */
+    public static long rankPacked(long packed, int k, int n){
+
+        long rank = 0;
+        long passed = 0;
+        for(int i = 0; i < k; ++i){
+            int value = (int) (packed >>> (6 * i)) & 63;
+            rank = rank * (n - i) + value - Long.bitCount(passed & ((1L << value) - 1));
+            passed |= 1L << value;
+        }
+        return rank;
+    }
+
+    /**
+     * Rebuilds a packed partial permutation from its rank
+     * @param rank the lexicographic rank
+     * @param k the number of values (at most MAX_PACKED_LENGTH)
+     * @param n the number of possible values (at most MAX_VALUES)
+     * @return the values, 6 bits each, value i in bits 6i to 6i + 5
+     */
+    public static long unrankPacked(long rank, int k, int n){
+
+        long digits = 0;
+        for(int i = k - 1; i >= 0; --i){
+            digits |= (rank % (n - i)) << (6 * i);
+            rank /= n - i;
+        }
+        long available = n == MAX_VALUES ? -1L : (1L << n) - 1;
+        long packed = 0;
+        for(int i = 0; i < k; ++i){
+            int value = select(available, (int) (digits >>> (6 * i)) & 63);
+            packed |= (long) value << (6 * i);
+            available &= ~(1L << value);
+        }
+        return packed;
+    }
+
+    /**
+     * Ranks the tiles of a board as a permutation of 0 to boardSize - 1, read in row-major order
+     * @param layout the layout of the board (at most 4x4, whose 16! boards fit in a long)
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return the rank of the board, from 0 to boardSize! - 1
+     */
+    public static long rankState(BoardLayout layout, long[] state, int offset){
+
+        int n = layout.boardSize;
+        long rank = 0;
+        long passed = 0;
+        for(int position = 0; position < n; ++position){
+            int tile = layout.tileAt(state, offset, position);
+            rank = rank * (n - position) + tile - Long.bitCount(passed & ((1L << tile) - 1));
+            passed |= 1L << tile;
+        }
+        return rank;
+    }
+
+    /**
+     * Rebuilds a board from its rank (see rankState)
+     * @param layout the layout of the board
+     * @param rank the rank of the board
+     * @param state array receiving the packed state
+     * @param offset index of the first word of the state in the array
+     */
+    public static void unrankState(BoardLayout layout, long rank, long[] state, int offset){
+
+        int[] tiles = new int[layout.boardSize];
+        unrank(rank, tiles);
+        layout.pack(tiles, state, offset);
+    }
+
+    /**
+     * Ranks the order of the tiles of a board, skipping the open slot (tiles 1 to boardSize - 1 read as 0 to boardSize - 2).
+     * Together with the position of the open slot this identifies the board. Every board that can reach the goal of a board
+     * with an odd edge length has an even order, so this rank can be halved for them.
+     * @param layout the layout of the board (at most 4x4)
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return the rank of the order, from 0 to (boardSize - 1)! - 1
+     */
+    public static long rankTiles(BoardLayout layout, long[] state, int offset){
+
+        int remaining = layout.boardSize - 1;
+        long rank = 0;
+        long passed = 0;
+        for(int position = 0; position < layout.boardSize; ++position){
+            int tile = layout.tileAt(state, offset, position);
+            if(tile == 0)
+                continue;
+            rank = rank * remaining-- + (tile - 1) - Long.bitCount(passed & ((1L << tile) - 1));
+            passed |= 1L << tile;
+        }
+        return rank;
+    }
+
+    /**
+     * Finds the position of the d-th lowest set bit of a mask, in constant time (a binary search over bit counts)
+     * @param mask the bits
+     * @param d which set bit, from 0
+     * @return its position
+     */
+    static int select(long mask, int d){
+
+        int position = 0;
+        for(int width = 32; width > 0; width >>>= 1){
+            int lowCount = Long.bitCount(mask & ((1L << width) - 1));
+            if(d >= lowCount){
+                d -= lowCount;
+                mask >>>= width;
+                position += width;
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The limits of one search: a deadline, a budget of boards expanded and a budget of memory, plus a flag to cancel it
+ * from another thread. A search stops once any of them is reached, and its result tells which one (see SearchResult.Status).
+ *
+ * Searches check their limits every CHECK_INTERVAL boards expanded, so a limit may be overshot by that many boards
+ * (about a tenth of a millisecond). With partial results on, a stopped search hands out the path to the board closest to
+ * the goal (lowest heuristic value) it has seen, so a caller out of time still gets moves that make progress.
+ *
+ * A SearchLimits is set up with its chained setters, then given to one search:
+ *      new SearchLimits().timeout(200, TimeUnit.MILLISECONDS).maxExpanded(1000000).partialResults(true)
+ * Only cancel() may be called once the search has started, from any thread.
+ */
+public class SearchLimits {
+
+    public static final int CHECK_INTERVAL = 1024;  // Boards expanded between two checks (a power of two)
+
+    private long deadline;                  // System.nanoTime() at which the search stops
+    private boolean hasDeadline;            // False if there is no deadline
+    private long maxExpanded = Long.MAX_VALUE;
+    private long maxMemory = Long.MAX_VALUE;    // Bytes the search structures may use
+    private boolean partialResults;
+    private volatile boolean cancelled;
+
+    /**
+     * Stops the search once some time has passed from now
+     * @param timeout the time the search may take
+     * @param unit the unit of the timeout
+     * @return this
+     */
+    public SearchLimits timeout(long timeout, TimeUnit unit){
+        return deadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Stops the search at a given time
+     * @param nanoTime the time to stop at, on the System.nanoTime() clock
+     * @return this
+     */
+    public SearchLimits deadline(long nanoTime){
+        deadline = nanoTime;
+        hasDeadline = true;
+        return this;
+    }
+
+    /**
+     * Stops the search once it has expanded some number of boards
+     * @param boards the most boards to expand
+     * @return this
+     */
+    public SearchLimits maxExpanded(long boards){
+        maxExpanded = boards;
+        return this;
+    }
+
+    /**
+     * Stops the search once its structures grow past some size: the closed set (nearly all of its memory) for the searches
+     * keeping one, the current layers for FrontierSearch, and only the board and path for IDA* (which it never reaches in practice)
+     * @param bytes the most bytes the search may use
+     * @return this
+     */
+    public SearchLimits maxMemory(long bytes){
+        maxMemory = bytes;
+        return this;
+    }
+
+    /**
+     * Asks a stopped search for the path to the closest board it has seen, rather than no moves at all
+     * @param partial true to get partial results
+     * @return this
+     */
+    public SearchLimits partialResults(boolean partial){
+        partialResults = partial;
+        return this;
+    }
+
+    /**
+     * Stops the search the next time it checks its limits. Safe to call from any thread, at any time.
+     */
+    public void cancel(){
+        cancelled = true;
+    }
+
+    public boolean isCancelled(){
+        return cancelled;
+    }
+
+    public boolean isPartialResults(){
+        return partialResults;
+    }
+
+    /**
+     * Checks if a limit has been reached
+     * @param expanded the boards expanded so far
+     * @param memory the bytes used by the search so far
+     * @return the reason to stop (Status.CANCELLED, TIMED_OUT, NODE_LIMIT or MEMORY_LIMIT), or null if the search may go on
+     */
+    public SearchResult.Status check(long expanded, long memory){
+
+        if(cancelled)
+            return SearchResult.Status.CANCELLED;
+        if(expanded >= maxExpanded)
+            return SearchResult.Status.NODE_LIMIT;
+        if(memory >= maxMemory)
+            return SearchResult.Status.MEMORY_LIMIT;
+        if(hasDeadline && System.nanoTime() - deadline >= 0)
+            return SearchResult.Status.TIMED_OUT;
+        return null;
+    }
+
+    /**
+     * Checks if it is time to check the limits, see check()
+     * @param expanded the boards expanded so far
+     * @return true every CHECK_INTERVAL boards
+     */
+    public static boolean isCheckDue(long expanded){
+        return (expanded & (CHECK_INTERVAL - 1)) == 0;
+    }
+}
@@ -0,0 +1,287 @@
+import java.util.Locale;
+
+/**
+ * The counters of one search, so a slow solve can be traced to the heuristic, the open list or the closed set.
+ *
+ * A solver owns one SearchMetrics and is only used by one thread at a time, so the counters are plain fields bumped
+ * in the search loop, with no atomics or locks. At the end of a solve they are copied into the SearchResult (see
+ * SearchResult.getMetrics) and added once to the process wide totals (see SearchStatistics).
+ *
+ * Counters (every one is 0 for a search that has no such thing, ex: IDA* keeps no closed set):
+ *      expanded        boards whose children were generated
+ *      generated       children generated
+ *      duplicates      children already in the closed set, with no better path
+ *      reopened        children already in the closed set, reached again by a better path (pushed again)
+ *      stalePops       queue entries skipped because a better path to their board was found after they were pushed
+ *      peakOpen        most entries in the open list at once
+ *      peakClosed      most boards in the closed set at once
+ *      iterations      bounded iterations (IDA* and FrontierSearch), 1 for every other search
+ *      cacheHits       1 if the solution came from a SolutionCache without searching (see CachingSolver), 0 otherwise
+ *
+ * Phase timers are only kept when asked for (-Dnpuzzle.metrics.timers=true), since reading the clock around every
+ * operation costs more than the operation itself on small boards. SearchTree keeps all four, the other searches only
+ * time their heuristic. The time of the whole solve is always kept.
+ */
+public class SearchMetrics {
+
+    public static final boolean TIMERS = Boolean.getBoolean("npuzzle.metrics.timers");  // Keep the phase timers
+
+    long expanded;
+    long generated;
+    long duplicates;
+    long reopened;
+    long stalePops;
+    long peakOpen;
+    long peakClosed;
+    long iterations;
+    long cacheHits;
+    int solutionLength = -1;        // Moves of the solution, -1 if none was found
+
+    long heuristicNanos;            // Time spent evaluating boards (phase timers only)
+    long successorNanos;            // Time spent generating children, without evaluating them (phase timers only)
+    long closedSetNanos;            // Time spent in the closed set (phase timers only)
+    long openListNanos;             // Time spent in the open list (phase timers only)
+    long totalNanos;                // Time of the whole solve
+
+    private long startTime;         // System.nanoTime() when the solve started
+    private long phaseStart;        // System.nanoTime() when the current phase started (phase timers only)
+    private long heuristicMark;     // heuristicNanos when the current phase started (phase timers only)
+
+    /**
+     * Clears every counter and starts the clock of a new solve
+     */
+    public void start(){
+        expanded = 0;
+        generated = 0;
+        duplicates = 0;
+        reopened = 0;
+        stalePops = 0;
+        peakOpen = 0;
+        peakClosed = 0;
+        iterations = 0;
+        cacheHits = 0;
+        solutionLength = -1;
+        heuristicNanos = 0;
+        successorNanos = 0;
+        closedSetNanos = 0;
+        openListNanos = 0;
+        totalNanos = 0;
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Stops the clock and adds the counters of the solve to the process wide totals
+     * @param solutionLength the moves of the solution, or -1 if none was found
+     * @return a copy of the counters, to be handed out with the result (the solver keeps reusing this one)
+     */
+    public SearchMetrics finish(int solutionLength){
+        this.solutionLength = solutionLength;
+        totalNanos = System.nanoTime() - startTime;
+        SearchStatistics.getInstance().record(this);
+        return copy();
+    }
+
+    /**
+     * Starts the clock of the phase timers. Each endXxx() method then adds the time since the previous phase ended
+     * to its phase. Callers only call these when TIMERS is true (a constant, so the calls cost nothing otherwise).
+     */
+    void startPhase(){
+        phaseStart = System.nanoTime();
+        heuristicMark = heuristicNanos;
+    }
+
+    void endOpenList(){
+        long now = System.nanoTime();
+        openListNanos += now - phaseStart;
+        phaseStart = now;
+    }
+
+    void endClosedSet(){
+        long now = System.nanoTime();
+        closedSetNanos += now - phaseStart;
+        phaseStart = now;
+    }
+
+    /**
+     * Ends a successor generation phase. The time spent in a timed heuristic (see timed) during the phase was already
+     * added to the heuristic timer, so it is left out.
+     */
+    void endSuccessors(){
+        long now = System.nanoTime();
+        successorNanos += now - phaseStart - (heuristicNanos - heuristicMark);
+        phaseStart = now;
+        heuristicMark = heuristicNanos;
+    }
+
+    /**
+     * Adds the counters of another search into this one (ex: the workers of a parallel search). Peaks are added too,
+     * since the structures of the workers are all alive at once.
+     * @param other the counters to add
+     */
+    public void add(SearchMetrics other){
+        expanded += other.expanded;
+        generated += other.generated;
+        duplicates += other.duplicates;
+        reopened += other.reopened;
+        stalePops += other.stalePops;
+        peakOpen += other.peakOpen;
+        peakClosed += other.peakClosed;
+        cacheHits += other.cacheHits;
+        heuristicNanos += other.heuristicNanos;
+        successorNanos += other.successorNanos;
+        closedSetNanos += other.closedSetNanos;
+        openListNanos += other.openListNanos;
+    }
+
+    /**
+     * Copies every counter
+     * @return the copy
+     */
+    public SearchMetrics copy(){
+        SearchMetrics copy = new SearchMetrics();
+        copy.add(this);
+        copy.iterations = iterations;
+        copy.solutionLength = solutionLength;
+        copy.totalNanos = totalNanos;
+        return copy;
+    }
+
+    /**
+     * Wraps a heuristic so the time spent in it is added to this object's heuristic timer
+     * @param heuristic the heuristic to time
+     * @return the heuristic itself if the phase timers are off, a timing wrapper otherwise
+     */
+    public Heuristic timed(Heuristic heuristic){
+
+        if(!TIMERS)
+            return heuristic;
+        return new Heuristic() {
+            public int estimate(long[] state, int offset){
+                long start = System.nanoTime();
+                int value = heuristic.estimate(state, offset);
+                heuristicNanos += System.nanoTime() - start;
+                return value;
+            }
+
+            public int update(int value, long[] state, int offset, int tile, int from, int to){
+                long start = System.nanoTime();
+                value = heuristic.update(value, state, offset, tile, from, to);
+                heuristicNanos += System.nanoTime() - start;
+                return value;
+            }
+
+            public boolean isConsistent(){
+                return heuristic.isConsistent();
+            }
+        };
+    }
+
+    /**
+     * Grabs the effective branching factor: the b for which a uniform tree of the depth of the solution holds as many
+     * boards as were generated, N + 1 = 1 + b + b^2 + ... + b^d. The closer to 1, the better the heuristic guided the search.
+     * @return the effective branching factor, or 0 if there is no solution or it has no moves
+     */
+    public double getEffectiveBranchingFactor(){
+
+        if(solutionLength <= 0 || generated == 0)
+            return 0;
+
+        double low = 1, high = Math.max(2, generated);  // N >= d, so b lies in [1, N]
+        for(int step = 0; step < 64; ++step){
+            double b = (low + high) / 2;
+            double boards = 0, level = 1;
+            for(int depth = 1; depth <= solutionLength && boards <= generated; ++depth){
+                level *= b;
+                boards += level;
+            }
+            if(boards > generated)
+                high = b;
+            else
+                low = b;
+        }
+        return (low + high) / 2;
+    }
+
+    public long getExpanded(){
+        return expanded;
+    }
+
+    public long getGenerated(){
+        return generated;
+    }
+
+    public long getDuplicates(){
+        return duplicates;
+    }
+
+    public long getReopened(){
+        return reopened;
+    }
+
+    public long getStalePops(){
+        return stalePops;
+    }
+
+    public long getPeakOpen(){
+        return peakOpen;
+    }
+
+    public long getPeakClosed(){
+        return peakClosed;
+    }
+
+    public long getIterations(){
+        return iterations;
+    }
+
+    public long getCacheHits(){
+        return cacheHits;
+    }
+
+    public int getSolutionLength(){
+        return solutionLength;
+    }
+
+    public long getHeuristicNanos(){
+        return heuristicNanos;
+    }
+
+    public long getSuccessorNanos(){
+        return successorNanos;
+    }
+
+    public long getClosedSetNanos(){
+        return closedSetNanos;
+    }
+
+    public long getOpenListNanos(){
+        return openListNanos;
+    }
+
+    public long getTotalNanos(){
+        return totalNanos;
+    }
+
+    /**
+     * Grabs the boards expanded per second of the solve
+     * @return the expansion rate, or 0 if the solve took no measurable time
+     */
+    public double getExpansionRate(){
+        return totalNanos == 0 ? 0 : expanded * 1e9 / totalNanos;
+    }
+
+    /**
+     * Prints every counter on one line (phase times only if they were kept)
+     */
+    public String toString(){
+
+        String line = String.format(Locale.ROOT, "expanded %d, generated %d, duplicates %d, reopened %d, stale pops %d, "
+                                    + "peak open %d, peak closed %d, iterations %d, cache hits %d, branching factor %.3f, %.3f ms (%.0f boards/s)",
+                                    expanded, generated, duplicates, reopened, stalePops, peakOpen, peakClosed, iterations,
+                                    cacheHits, getEffectiveBranchingFactor(), totalNanos / 1e6, getExpansionRate());
+        if(heuristicNanos + successorNanos + closedSetNanos + openListNanos > 0)
+            line += String.format(Locale.ROOT, ", heuristic %.3f ms, successors %.3f ms, closed set %.3f ms, open list %.3f ms",
+                                  heuristicNanos / 1e6, successorNanos / 1e6, closedSetNanos / 1e6, openListNanos / 1e6);
+        return line;
+    }
+}
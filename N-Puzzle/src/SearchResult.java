@@ -0,0 +1,158 @@
+/**
+ * Holds the result of a search: whether a solution was found (see Status), its moves, and how much work the search did.
+ *
+ * The solution is stored as the directions the tiles were moved in (Constants.UP, RIGHT, DOWN or LEFT), in order.
+ * Replaying those moves on the start board gives every board of the path, so no board states need to be kept.
+ *
+ * The counters of the search (see SearchMetrics) come with it. Solvers that keep only the boards expanded and generated
+ * get a SearchMetrics holding just those two.
+ *
+ * A search stopped by one of its limits (see SearchLimits) may hand out a partial result: the moves to the board closest
+ * to the goal it has seen. Those moves are read like a solution's (getMoveCount, getMove), but getSolutionLength stays -1.
+ */
+public class SearchResult {
+
+    /**
+     * How a search ended
+     */
+    public enum Status {
+        SOLVED,         // The goal was reached, the moves solve the board. They are optimal for the optimal algorithms,
+                        // wastar and arastar report how far from optimal they may be (see Solver.getBound)
+        UNSOLVABLE,     // The board cannot be solved (wrong parity), or the search ran out of boards
+        TIMED_OUT,      // The deadline passed
+        NODE_LIMIT,     // The budget of boards expanded was used up
+        MEMORY_LIMIT,   // The budget of memory was used up
+        CANCELLED       // The search was cancelled from another thread
+    }
+
+    private static final char[] MOVE_LETTERS = {'U', 'R', 'D', 'L'};
+
+    private final Status status;      // How the search ended
+    private final byte[] moves;       // Directions of the moves of the solution, or of the partial path (may be empty)
+    private final long expanded;      // Number of boards expanded (their children generated)
+    private final long generated;     // Number of children generated
+    private final SearchMetrics metrics;  // Every counter of the search
+
+    /**
+     * @param solved true if the goal was reached
+     * @param moves the directions of the moves of the solution, in order (ignored if not solved)
+     * @param expanded the number of boards expanded
+     * @param generated the number of children generated
+     */
+    public SearchResult(boolean solved, byte[] moves, long expanded, long generated){
+        this.status = solved ? Status.SOLVED : Status.UNSOLVABLE;
+        this.moves = solved ? moves : new byte[0];
+        this.expanded = expanded;
+        this.generated = generated;
+        metrics = new SearchMetrics();
+        metrics.expanded = expanded;
+        metrics.generated = generated;
+        metrics.solutionLength = getSolutionLength();
+    }
+
+    /**
+     * @param solved true if the goal was reached
+     * @param moves the directions of the moves of the solution, in order (ignored if not solved)
+     * @param metrics the counters of the search (see SearchMetrics.finish), the boards expanded and generated are taken from it
+     */
+    public SearchResult(boolean solved, byte[] moves, SearchMetrics metrics){
+        this(solved ? Status.SOLVED : Status.UNSOLVABLE, moves, metrics);
+    }
+
+    /**
+     * @param status how the search ended
+     * @param moves the moves of the solution, or of the partial path of a stopped search (null or ignored if there are none)
+     * @param metrics the counters of the search (see SearchMetrics.finish), the boards expanded and generated are taken from it
+     */
+    public SearchResult(Status status, byte[] moves, SearchMetrics metrics){
+        this.status = status;
+        this.moves = moves == null || status == Status.UNSOLVABLE ? new byte[0] : moves;
+        this.expanded = metrics.expanded;
+        this.generated = metrics.generated;
+        this.metrics = metrics;
+    }
+
+    public Status getStatus(){
+        return status;
+    }
+
+    public boolean isSolved(){
+        return status == Status.SOLVED;
+    }
+
+    /**
+     * Checks if the search was stopped by one of its limits with moves towards the goal (see SearchLimits.partialResults)
+     * @return true if the moves are a partial path
+     */
+    public boolean isPartial(){
+        return status != Status.SOLVED && moves.length > 0;
+    }
+
+    /**
+     * Grabs the number of moves of the solution
+     * @return the length of the solution, or -1 if no solution was found
+     */
+    public int getSolutionLength(){
+        return isSolved() ? moves.length : -1;
+    }
+
+    /**
+     * Grabs the number of moves held: those of the solution, or of the partial path
+     * @return the number of moves
+     */
+    public int getMoveCount(){
+        return moves.length;
+    }
+
+    /**
+     * Grabs the direction of one move of the solution (or of the partial path)
+     * @param index index of the move (0 is the first move)
+     * @return Constants.UP, RIGHT, DOWN or LEFT
+     */
+    public int getMove(int index){
+        return moves[index];
+    }
+
+    public long getExpanded(){
+        return expanded;
+    }
+
+    public long getGenerated(){
+        return generated;
+    }
+
+    public SearchMetrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Grabs the moves of the solution as a compact string, one letter per move (ex: "ULDR")
+     * @return the moves as letters U, R, D and L (the direction each tile slid in)
+     */
+    public String getMovesAsString(){
+
+        StringBuilder letters = new StringBuilder(moves.length);
+        for(byte move : moves)
+            letters.append(MOVE_LETTERS[move]);
+        return letters.toString();
+    }
+
+    /**
+     * Prints our solution path, from the start board to the goal, by replaying the moves on a copy of the start board
+     * @param startBoard the board the search was started from
+     */
+    public void printPath(Board startBoard){
+
+        Board board = new Board(startBoard.getLayout(), startBoard.getBoardState(), 0);
+        for(int step = 0; step <= moves.length; ++step){
+
+            if(step > 0)
+                board.makeMove(moves[step - 1]);
+
+            System.out.println("");
+            System.out.println((step + 1) + ". ");
+            board.displayBoard();
+            System.out.println("Heuristic value: " + board.computeHeuristic());
+        }
+    }
+}
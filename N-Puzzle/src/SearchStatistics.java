@@ -0,0 +1,236 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The search counters of the whole process, summed over every solve of every thread (see SearchMetrics for the
+ * counters of one solve). Searches only touch these once, when they finish, so the search loops themselves never
+ * contend: the totals are LongAdders, and the peaks keep the highest value seen by any one solve.
+ *
+ * The totals can be read three ways:
+ *      the getters, or toString() for one line
+ *      JMX, once register() has been called (see SearchStatisticsMXBean)
+ *      the Prometheus text format, from toPrometheus() (ex: written to a file a node exporter picks up)
+ */
+public class SearchStatistics implements SearchStatisticsMXBean {
+
+    public static final String OBJECT_NAME = "NPuzzle:type=SearchStatistics";
+
+    private static final SearchStatistics INSTANCE = new SearchStatistics();
+
+    private final LongAdder solves = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+    private final LongAdder expanded = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder reopened = new LongAdder();
+    private final LongAdder stalePops = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final AtomicLong peakOpen = new AtomicLong();
+    private final AtomicLong peakClosed = new AtomicLong();
+    private final LongAdder heuristicNanos = new LongAdder();
+    private final LongAdder successorNanos = new LongAdder();
+    private final LongAdder closedSetNanos = new LongAdder();
+    private final LongAdder openListNanos = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    private boolean registered;     // True once the MXBean is registered with the platform MBean server
+
+    private SearchStatistics(){}
+
+    public static SearchStatistics getInstance(){
+        return INSTANCE;
+    }
+
+    /**
+     * Adds the counters of one finished solve
+     * @param metrics the counters of the solve
+     */
+    public void record(SearchMetrics metrics){
+
+        solves.increment();
+        if(metrics.solutionLength >= 0)
+            solved.increment();
+        expanded.add(metrics.expanded);
+        generated.add(metrics.generated);
+        duplicates.add(metrics.duplicates);
+        reopened.add(metrics.reopened);
+        stalePops.add(metrics.stalePops);
+        cacheHits.add(metrics.cacheHits);
+        peakOpen.accumulateAndGet(metrics.peakOpen, Math::max);
+        peakClosed.accumulateAndGet(metrics.peakClosed, Math::max);
+        heuristicNanos.add(metrics.heuristicNanos);
+        successorNanos.add(metrics.successorNanos);
+        closedSetNanos.add(metrics.closedSetNanos);
+        openListNanos.add(metrics.openListNanos);
+        totalNanos.add(metrics.totalNanos);
+    }
+
+    /**
+     * Registers the totals with the platform MBean server, so JMX clients can read them. Calling it again does nothing.
+     * @return true if the totals are registered
+     */
+    public synchronized boolean register(){
+
+        if(!registered){
+            try{
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName name = new ObjectName(OBJECT_NAME);
+                if(!server.isRegistered(name))
+                    server.registerMBean(this, name);
+                registered = true;
+            }
+            catch(JMException e){
+                System.err.println("Could not register the search statistics with JMX: " + e);
+            }
+        }
+        return registered;
+    }
+
+    public void reset(){
+        solves.reset();
+        solved.reset();
+        expanded.reset();
+        generated.reset();
+        duplicates.reset();
+        reopened.reset();
+        stalePops.reset();
+        cacheHits.reset();
+        peakOpen.set(0);
+        peakClosed.set(0);
+        heuristicNanos.reset();
+        successorNanos.reset();
+        closedSetNanos.reset();
+        openListNanos.reset();
+        totalNanos.reset();
+    }
+
+    public long getSolves(){
+        return solves.sum();
+    }
+
+    public long getSolved(){
+        return solved.sum();
+    }
+
+    public long getExpanded(){
+        return expanded.sum();
+    }
+
+    public long getGenerated(){
+        return generated.sum();
+    }
+
+    public long getDuplicates(){
+        return duplicates.sum();
+    }
+
+    public long getReopened(){
+        return reopened.sum();
+    }
+
+    public long getStalePops(){
+        return stalePops.sum();
+    }
+
+    public long getCacheHits(){
+        return cacheHits.sum();
+    }
+
+    public long getPeakOpen(){
+        return peakOpen.get();
+    }
+
+    public long getPeakClosed(){
+        return peakClosed.get();
+    }
+
+    public double getHeuristicSeconds(){
+        return heuristicNanos.sum() / 1e9;
+    }
+
+    public double getSuccessorSeconds(){
+        return successorNanos.sum() / 1e9;
+    }
+
+    public double getClosedSetSeconds(){
+        return closedSetNanos.sum() / 1e9;
+    }
+
+    public double getOpenListSeconds(){
+        return openListNanos.sum() / 1e9;
+    }
+
+    public double getSearchSeconds(){
+        return totalNanos.sum() / 1e9;
+    }
+
+    /**
+     * Grabs the boards expanded per second of search (summed over threads, so it can exceed the rate of one thread)
+     * @return the expansion rate, or 0 if nothing was searched yet
+     */
+    public double getExpansionRate(){
+        long nanos = totalNanos.sum();
+        return nanos == 0 ? 0 : expanded.sum() * 1e9 / nanos;
+    }
+
+    /**
+     * Writes the totals in the Prometheus text exposition format (version 0.0.4)
+     * @return the metric families, one sample per line
+     */
+    public String toPrometheus(){
+
+        StringBuilder text = new StringBuilder();
+        metric(text, "npuzzle_solves_total", "counter", "Searches finished.", getSolves());
+        metric(text, "npuzzle_solved_total", "counter", "Searches that found a solution.", getSolved());
+        metric(text, "npuzzle_boards_expanded_total", "counter", "Boards whose children were generated.", getExpanded());
+        metric(text, "npuzzle_boards_generated_total", "counter", "Children generated.", getGenerated());
+        metric(text, "npuzzle_duplicates_total", "counter", "Children already in the closed set, with no better path.", getDuplicates());
+        metric(text, "npuzzle_reopened_total", "counter", "Children reached again by a better path.", getReopened());
+        metric(text, "npuzzle_stale_pops_total", "counter", "Open list entries skipped as stale.", getStalePops());
+        metric(text, "npuzzle_cache_hits_total", "counter", "Searches answered from the solution cache.", getCacheHits());
+        metric(text, "npuzzle_peak_open_boards", "gauge", "Most open list entries of any one search.", getPeakOpen());
+        metric(text, "npuzzle_peak_closed_boards", "gauge", "Most closed set boards of any one search.", getPeakClosed());
+        metric(text, "npuzzle_search_seconds_total", "counter", "Time spent searching.", getSearchSeconds());
+
+        text.append("# HELP npuzzle_phase_seconds_total Time spent per search phase (only kept with -Dnpuzzle.metrics.timers=true).\n");
+        text.append("# TYPE npuzzle_phase_seconds_total counter\n");
+        sample(text, "npuzzle_phase_seconds_total{phase=\"heuristic\"}", getHeuristicSeconds());
+        sample(text, "npuzzle_phase_seconds_total{phase=\"successors\"}", getSuccessorSeconds());
+        sample(text, "npuzzle_phase_seconds_total{phase=\"closed_set\"}", getClosedSetSeconds());
+        sample(text, "npuzzle_phase_seconds_total{phase=\"open_list\"}", getOpenListSeconds());
+        return text.toString();
+    }
+
+    /**
+     * Appends one metric family holding a single sample
+     */
+    private static void metric(StringBuilder text, String name, String type, String help, double value){
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        sample(text, name, value);
+    }
+
+    private static void sample(StringBuilder text, String name, double value){
+        text.append(name).append(' ');
+        if(value == Math.rint(value) && Math.abs(value) < 1e15)
+            text.append((long) value);
+        else
+            text.append(String.format(Locale.ROOT, "%.6f", value));
+        text.append('\n');
+    }
+
+    /**
+     * Prints the main totals on one line
+     */
+    public String toString(){
+        return String.format(Locale.ROOT, "Searches: %d (%d solved), %d expanded, %d generated, %d duplicates, %d reopened, "
+                             + "%d stale pops, %d cache hits, peak open %d, peak closed %d, %.2f s searching (%.0f boards/s)",
+                             getSolves(), getSolved(), getExpanded(), getGenerated(), getDuplicates(), getReopened(),
+                             getStalePops(), getCacheHits(), getPeakOpen(), getPeakClosed(), getSearchSeconds(), getExpansionRate());
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * The process wide search totals, as seen through JMX (ex: jconsole, under NPuzzle:type=SearchStatistics).
+ * See SearchStatistics for what each value counts.
+ */
+public interface SearchStatisticsMXBean {
+
+    long getSolves();
+
+    long getSolved();
+
+    long getExpanded();
+
+    long getGenerated();
+
+    long getDuplicates();
+
+    long getReopened();
+
+    long getStalePops();
+
+    long getCacheHits();
+
+    long getPeakOpen();
+
+    long getPeakClosed();
+
+    double getHeuristicSeconds();
+
+    double getSuccessorSeconds();
+
+    double getClosedSetSeconds();
+
+    double getOpenListSeconds();
+
+    double getSearchSeconds();
+
+    double getExpansionRate();
+
+    /**
+     * Sets every total back to 0
+     */
+    void reset();
+}
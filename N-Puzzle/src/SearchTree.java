@@ -1,166 +1,314 @@
-import java.util.*;
-import java.util.PriorityQueue;
-
-
 /**
  *  This is our main class for our A* algorithm
  *  Main components include:
- *      A priority queue that holds the Node class which is organized based off of the totalCost of the node
- *      A hashmap that allows for immediate loop-ups to see if a node/boardState has been added to the queue yet and expanded
+ *      A bucket queue (see BucketQueue) that holds the closed set handles of the boards to expand, organized by their total cost
+ *      A closed set (hash table) that allows for immediate loop-ups to see if a node/boardState has been added to the queue yet and expanded
+ *
+ *      Board states are handled as packed longs (see the Board class). Strings are only built when printing the path.
+ *      The closed set holds the cost, heuristic and parent of every board we have seen, the queue only holds handles into it.
+ *
+ *      The algorithm used here is an A* algorithm. By default its heuristic is the one famously known as the Manhattan Distance,
+ *      any other Heuristic (ex: a PatternDatabaseHeuristic) can be given instead.
+ *
+ *      A more extensive explanation is provided in the isSolvable method. solve() runs it on any board, and the loop
+ *      itself is in the search method.
  *
- *      The algorithm used here is an A* algorithm with a heuristic that is famously known as the Manhattan Distance
+ *      Every search counts its work (boards expanded, duplicates, stale queue entries, peak sizes, ...) in a SearchMetrics,
+ *      and with -Dnpuzzle.metrics.timers=true also times the heuristic, the successor generation, the closed set and the queue.
  *
- *      A more extensive explanation is provided in the algorithmAStar method.
+ *      A SearchTree can either be created for one start board (then call isSolvable()), or for a board size and reused
+ *      for many boards through solve() (the closed set and queue are cleared, not reallocated). A solve can be given limits
+ *      (see SearchLimits): they are checked every SearchLimits.CHECK_INTERVAL expansions, against the size of the closed set.
  */
-public class SearchTree {
+public class SearchTree implements Solver {
 
-    private PriorityQueue<Node> pq = new PriorityQueue<>();
-    protected HashMap<String, Node> hmap = new HashMap<>();
+    private BucketQueue open = new BucketQueue();    // Our open list, holding closed set handles keyed by f = g + h
+    protected ClosedSet closedSet;
     private Board currentBoard;
-    public int pathCount = 0;
+    private final BoardLayout layout;       // Size of the boards we are searching, taken from the start board
+    private final Heuristic heuristic;      // Estimate of the moves left from a board
+    private final long[] parentState;       // Scratch space holding the packed state of the node being expanded
+    private final SuccessorBuffer successors;   // Reused buffer receiving the children of the node being expanded
+    private int goalHandle = -1;            // Handle of the goal board once it has been found
+    private boolean hasSolution;            // Result of the parity check on the start board
+    private SearchLimits limits;            // Limits of the current search
+    private SearchResult.Status stopped;    // Limit that stopped the search, null if none did
+    private final SearchMetrics metrics = new SearchMetrics();    // Counters of the current search
+    private SearchMetrics finishedMetrics;  // Counters of the last finished search, handed out with its result
 
 
     public SearchTree(Board startBoard){
 
-        // Create a board class inside our search tree algorithm.
-       currentBoard = startBoard;
+        this(startBoard.getLayout());
+        start(startBoard, new SearchLimits());
+    }
+
+    /**
+     * Creates a search for boards of a given size, guided by the Manhattan distance. Boards are then solved one at a time with solve().
+     * @param layout the layout of the boards to solve
+     */
+    public SearchTree(BoardLayout layout){
+
+       this(layout, new ManhattanHeuristic(layout));
+    }
+
+    /**
+     * Creates a search for boards of a given size, guided by any heuristic. Boards are then solved one at a time with solve().
+     * @param layout the layout of the boards to solve
+     * @param heuristic the heuristic to order the boards by (it must never overestimate for the solutions to be optimal)
+     */
+    public SearchTree(BoardLayout layout, Heuristic heuristic){
+
+       this.layout = layout;
+       this.heuristic = metrics.timed(heuristic);
+       closedSet = new ClosedSet(layout);
+       parentState = new long[layout.words];
+       successors = new SuccessorBuffer(layout, this.heuristic);
+    }
+
+    /**
+     * Solves a board with A* (see isSolvable()), reusing the closed set and queue of this search
+     * @param startBoard the board to solve (not modified)
+     * @param limits the limits of the search
+     * @return the optimal solution (or the path to the closest board if a limit stopped the search) and the counters of the search
+     */
+    public SearchResult solve(Board startBoard, SearchLimits limits){
 
-        // Add the contents of our currentBoard into our pq. This will be our starting point.
-        pq.add(new Node(currentBoard.getBoardAsString(), "NULL",      currentBoard.computeHeuristic(), 0));
+        start(startBoard, limits);
+        isSolvable();
+        return getResult();
+    }
+
+    /**
+     * Clears the search and adds the start board to it
+     * @param startBoard the board to start from
+     * @param limits the limits of the search
+     */
+    private void start(Board startBoard, SearchLimits limits){
+
+        // Create a board class inside our search tree algorithm.
+        currentBoard = startBoard;
+        closedSet.clear();
+        open.clear();
+        goalHandle = -1;
+        this.limits = limits;
+        stopped = null;
+        finishedMetrics = null;
+        metrics.start();
+        hasSolution = startBoard.hasSolution();
 
         //Add the node to the closed list (So that we have unique nodes)
-        hmap.put(currentBoard.getBoardAsString(), new Node(currentBoard.getBoardAsString(), "NULL", currentBoard.computeHeuristic(), 0));
+        currentBoard.copyBoardState(parentState, 0);
+        int handle = -closedSet.lookupOrInsert(parentState, 0) - 1;
+        closedSet.setHeuristic(handle, heuristic.estimate(parentState, 0));
+        closedSet.setBlank(handle, currentBoard.getFreeSpacePosition());
+
+        // Add the contents of our currentBoard into our queue. This will be our starting point.
+        open.push(handle, closedSet.getHeuristic(handle));
     }
 
     /**
      *  This is where our A* algorithm lies. It returns a boolean which indicates if we have a solution or not.
-     *  The algorithm uses two main components: A priority queue and a hashmap.
-     *  The priority queue is used to store each node based off of their totalCost.
+     *  The algorithm uses two main components: A bucket queue and a closed set (our hash table).
+     *  The queue is used to store each board based off of their totalCost, f = g + h, where g is the number of moves
+     *  made from the start board and h is the heuristic value (ties go to the most recently generated board).
      *  We simply pop off the one with the lowest totalCost and then expand its neighbors.
-     *  It's neighbors are dictated by what numbers/pieces are able to move into the empty slot.
-     *  The hashmap is used for constant look-ups. We use this to see if a board state has already been
+     *  It's neighbors are dictated by what numbers/pieces are able to move into the empty slot (see SuccessorBuffer).
+     *  The closed set is used for constant look-ups. We use this to see if a board state has already been
      *  pushed/added to our priority queue.
-     *  If it has been added, we then check to see if we have found a better path with a lower cost to get to that state.
-     *  If we have, then we update our totalCost for that state and we update the parent of that state.
-     *  This ultimately helps us get our most optimal path.
+     *  If it has been added, we then check to see if we have found a better path (a lower g) to get to that state.
+     *  If we have, then we update g for that state, update the parent of that state and push it again with its new f.
+     *  The entry pushed before is not removed from the queue, instead it is skipped when it is popped (the f it was
+     *  pushed with no longer matches the g + h in the closed set).
+     *  Since the heuristic never overestimates the moves left, the first time the goal is popped its path is optimal.
+     *
+     *  Boards that fail the parity check (see Board.hasSolution) are rejected right away, without searching.
      *
      * @return true if solution found, false otherwise
      */
     public boolean isSolvable(){
 
+        boolean found = hasSolution && search(Integer.MAX_VALUE);
+        finish();
+        return found;
+    }
 
-        // In our constructor above we have already added our start boardState into our queue
-        // If our queue is empty, then we have expanded all states for our puzzle and there is no solution.
-        while(!pq.isEmpty()){
-
-            Node currentParent = pq.poll(); // Since we used compareTo in our Node class, we will always pop the one with the lowest totalCost
+    /**
+     * Looks for the board closest to the goal (lowest heuristic value) that can be reached from the start board.
+     * This is meant for impossible puzzles and must be asked for explicitly, since it may visit many boards.
+     * The search is bounded: it stops once maxBoards boards have been visited.
+     *
+     * @param maxBoards the most boards to visit (ex: Constants.CLOSEST_BOARD_LIMIT)
+     * @return the closest board found
+     */
+    public Board findClosestBoard(int maxBoards){
 
-            // If our currently looked at Node has a heuristicValue of 0, then we found our solution.
-            if(currentParent.heuristicValue == 0 || currentParent.boardState.equals(Constants.goalState8Puzzle)){
-                return true;
-            }
+        search(maxBoards);
+        finish();
+        return closedSet.getBoard(closestHandle());
+    }
 
-            // We make a new Board so that we can use the functionalities of the Board class to extract data to use in our Algorithm
-            currentBoard = new Board(currentParent.boardState);
+    /**
+     * Finds the board of the closed set with the lowest heuristic value (the first one found on ties)
+     * @return its handle
+     */
+    private int closestHandle(){
 
-            // Loop through all the numbers (1-8) and check to see if we can move to our open space location
-            // If we can, we then check to see if it is already contained in the hashmap.
-            for(int i = 1; i < Constants.BOARD_SIZE; ++i){
+        int bestHandle = 0;
+        for(int handle = 1; handle < closedSet.size(); ++handle)
+            if(closedSet.getHeuristic(handle) < closedSet.getHeuristic(bestHandle))
+                bestHandle = handle;
+        return bestHandle;
+    }
 
-                String childBoardState = "";  // Used to hold the string of our "child" board state
-                boolean valid = false;        // Used to determine if we have found a valid move
+    /**
+     * Grabs the result of the search: the moves of the solution (rebuilt from the parents in the closed set) and its work.
+     * If a limit stopped the search, the moves lead to the closest board found instead (when partial results were asked for).
+     * @return the result of the search
+     */
+    public SearchResult getResult(){
+
+        SearchMetrics resultMetrics = finishedMetrics != null ? finishedMetrics : metrics.copy();
+        if(goalHandle >= 0)
+            return new SearchResult(SearchResult.Status.SOLVED, pathTo(goalHandle), resultMetrics);
+        if(stopped != null)
+            return new SearchResult(stopped, limits.isPartialResults() ? pathTo(closestHandle()) : null, resultMetrics);
+        return new SearchResult(SearchResult.Status.UNSOLVABLE, null, resultMetrics);
+    }
 
-                if(valid = currentBoard.isMoveValid(i, "UP")){          //Check to see if we can move up. If so, get the string of that new boardState
-                    childBoardState = currentBoard.stringAfterSwap("UP");
-                }
-                else if(valid = currentBoard.isMoveValid(i, "RIGHT")) { //Check to see if we can move right. If so, get the string of that new boardState
-                    childBoardState = currentBoard.stringAfterSwap("RIGHT");
-                }
-                else if(valid = currentBoard.isMoveValid(i, "DOWN")){   //Check to see if we can move down. If so, get the string of that new boardState
-                    childBoardState = currentBoard.stringAfterSwap("DOWN");
-                }
-                else if(valid = currentBoard.isMoveValid(i, "LEFT")){   //Check to see if we can move left. If so, get the string of that new boardState
-                    childBoardState = currentBoard.stringAfterSwap("LEFT");
-                }
+    /**
+     * Rebuilds the moves leading from the start board to a board, following the parents in the closed set
+     * @param target the handle of the last board of the path
+     * @return the directions of the moves, in order
+     */
+    private byte[] pathTo(int target){
 
+        int length = 0;
+        for(int handle = target; closedSet.getParent(handle) != ClosedSet.NO_PARENT; handle = closedSet.getParent(handle))
+            length++;
 
-                if(valid && !hmap.containsKey(childBoardState)){        // Check to see if childBoard is in hashmap, if not, add to hashmap and to queue
-                    Board b = new Board(childBoardState);               // Create a new board class with the childBoardState
-                    hmap.put(childBoardState, new Node(b.getBoardAsString(), currentParent.boardState, b.computeHeuristic(), (b.computeHeuristic() + currentParent.totalCost) ));
-                    pq.add(new Node(b.getBoardAsString(), currentParent.boardState, b.computeHeuristic(), (b.computeHeuristic() + currentParent.totalCost) ));
-                }
-                else if( hmap.containsKey(childBoardState) )            // If it is in hashmap, check to see if better solution path
-                {
-                    if( (currentParent.totalCost  + hmap.get(childBoardState).heuristicValue) < hmap.get(childBoardState).totalCost) {
-                        hmap.get(childBoardState).totalCost   = currentParent.totalCost + hmap.get(childBoardState).heuristicValue; // Update totalCost if found better solution path
-                        hmap.get(childBoardState).parentState = currentParent.boardState;   // Update parent
-                        pq.add(hmap.get(childBoardState));
-                    }
-                }
-            }
-        }
-        return false;   // If we reach here, then we know there is no solution.
+        byte[] moves = new byte[length];    // Filled backwards, from the target to the start board
+        for(int handle = target; closedSet.getParent(handle) != ClosedSet.NO_PARENT; handle = closedSet.getParent(handle))
+            moves[--length] = (byte) closedSet.getMove(handle);
+        return moves;
     }
 
     /**
-     *  This is a recursive print helper. It starts from the "tail" or goal state and works backwards until it reaches the startState
-     *  This is a post order traversal.
-     * @param start start holds the string value of the startState used for our algorithm
-     * @param current begins with the tail end of our solution and works backwards by the parentState until it reachs the starts
+     * Stops the counters of the search, so the result can hand them out (see SearchMetrics.finish)
      */
-    public void printPathHelper(String start, String current){
-
-        // If this condition is met, we have reached our end and it's time to loop back
-        if(current.equals("NULL"))
-            return;
-
-        //Recursive helper call
-        printPathHelper(start, hmap.get(current).parentState);
+    private void finish(){
 
+        metrics.peakClosed = closedSet.size();      // The closed set only grows during a search
+        metrics.iterations = 1;
+        finishedMetrics = metrics.finish(getSolutionLength());
+    }
 
-        pathCount++;                                    // Increment our pathCounter to show how many states needed for our solution
-        int rowCounter = 0;                             // Used for visually orientation and to create a new line
-        char[] boardAsArray = current.toCharArray();    // Convert the string to a char array and then print
-        System.out.println("");
-        System.out.println(pathCount +". ");
-        System.out.print("   ");
+    /**
+     * Grabs the number of moves of the solution found by isSolvable()
+     * @return the length of the optimal path, or -1 if no solution was found
+     */
+    public int getSolutionLength(){
+        return goalHandle < 0 ? -1 : closedSet.getCost(goalHandle);
+    }
 
+    /**
+     * Grabs the number of boards visited so far (the size of the closed set)
+     * @return the number of boards visited
+     */
+    public int getBoardsVisited(){
+        return closedSet.size();
+    }
 
-        //Iterate through each character and print accordingly.
-        for(int i = 0; i < boardAsArray.length; ++i){
+    /**
+     * The A* loop itself, shared by isSolvable() and findClosestBoard()
+     * @param maxBoards stop once this many boards have been added to the closed set
+     * @return true if the goal was found, false otherwise (stopped tells if a limit was reached)
+     */
+    private boolean search(int maxBoards){
 
-            if( boardAsArray[i] != '0')
-                System.out.print(boardAsArray[i] + " ");
-            else
-                System.out.print("  ");
+        // In our constructor above we have already added our start boardState into our queue
+        // If our queue is empty, then we have expanded all states for our puzzle and there is no solution.
+        while(!open.isEmpty() && closedSet.size() < maxBoards){
+
+            if(SearchMetrics.TIMERS)
+                metrics.startPhase();
+            int totalCost = open.minKey();  // We will always pop a board with the lowest totalCost
+            int currentParent = open.pop();
+            if(SearchMetrics.TIMERS)
+                metrics.endOpenList();
+            int pathCost = closedSet.getCost(currentParent);
+            int heuristicValue = closedSet.getHeuristic(currentParent);
+
+            // A better path to this board was found after this entry was pushed, so the entry is stale. Skip it.
+            if(pathCost + heuristicValue != totalCost){
+                metrics.stalePops++;
+                continue;
+            }
 
-            rowCounter++;
+            // If our currently looked at board is the goal, then we found our solution.
+            closedSet.copyState(currentParent, parentState, 0);
+            if(SearchMetrics.TIMERS)
+                metrics.endClosedSet();
+            if(layout.isGoal(parentState, 0)){
+                goalHandle = currentParent;
+                return true;
+            }
 
-            if(rowCounter % Constants.EDGE_LENGTH == 0) {
-                System.out.println("");
-                if(rowCounter != Constants.BOARD_SIZE)
-                  System.out.print("   ");
+            // Generate every board we can reach by moving a tile into our open space location (without undoing the last move).
+            // For each child, we then check to see if it is already contained in the closed set.
+            successors.generate(parentState, 0, closedSet.getBlank(currentParent), heuristicValue, closedSet.getMove(currentParent));
+            metrics.expanded++;
+            metrics.generated += successors.count;
+            if(SearchMetrics.TIMERS)
+                metrics.endSuccessors();
+
+            for(int i = 0; i < successors.count; ++i){
+
+                int heuristic = successors.heuristic[i];   // Heuristic value of the child, updated from its parent's value
+                int cost = pathCost + 1;                   // Every move costs 1
+                int child = closedSet.lookupOrInsert(successors.states, i * layout.words);  // A single probe both finds the child and adds it if it is new
+                if(SearchMetrics.TIMERS)
+                    metrics.endClosedSet();
+
+                if(child < 0){                                          // Child was not in the closed set yet, it was just added. Add it to queue
+                    child = -child - 1;
+                    closedSet.setHeuristic(child, heuristic);
+                    closedSet.setBlank(child, successors.blank[i]);
+                    closedSet.setMove(child, successors.move[i]);
+                    closedSet.setCost(child, cost);
+                    closedSet.setParent(child, currentParent);
+                    open.push(child, cost + heuristic);
+                }
+                else if( cost < closedSet.getCost(child) )              // If it was, check to see if better solution path
+                {
+                    closedSet.setCost(child, cost);                     // Update g if found better solution path
+                    closedSet.setParent(child, currentParent);          // Update parent
+                    closedSet.setMove(child, successors.move[i]);
+                    open.push(child, cost + closedSet.getHeuristic(child));
+                    metrics.reopened++;
+                }
+                else
+                    metrics.duplicates++;
+                if(SearchMetrics.TIMERS)
+                    metrics.endOpenList();
             }
+            if(open.size() > metrics.peakOpen)
+                metrics.peakOpen = open.size();
+
+            // Every so often, check that we are still within our time, boards and memory (or have not been cancelled)
+            if(SearchLimits.isCheckDue(metrics.expanded)
+                    && (stopped = limits.check(metrics.expanded, closedSet.memoryUsage())) != null)
+                return false;
         }
-        System.out.println("Heuristic value: " + hmap.get(current).heuristicValue);
+        return false;   // If we reach here, then we know there is no solution.
     }
 
-
     /**
-     * printPath is a method that allows us to print our solution path of our puzzle. It uses the helper function above
+     * printPath is a method that allows us to print our solution path of our puzzle (see SearchResult.printPath)
      * @param start holds the startState of our algorithm
      */
     public void printPath(String start){
 
-        String goal = Constants.goalState8Puzzle;
-        printPathHelper(start, hmap.get(goal).parentState);
-
-        pathCount++;
-        System.out.println("");
-        System.out.println(pathCount+".");
-        System.out.println("   1 2 3");
-        System.out.println("   4 5 6");
-        System.out.println("   7 8  ");
-        System.out.println("Heuristic value: 0");
+        getResult().printPath(new Board(start));
     }
 }
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of solutions, shared by every thread, keyed by the packed state of the board.
+ *
+ * Boards are canonicalized before every look-up: a board and its reflection across the main diagonal (see
+ * BoardLayout.transpose) are exactly as hard, so only the lower of the two packed states is stored, and a solution found
+ * for one is handed out for the other with its moves reflected too (see BoardLayout.transposeDirection).
+ *
+ * The cache is split into stripes, each an access ordered LinkedHashMap behind its own lock, so threads looking up
+ * different boards rarely wait on each other. Each stripe evicts its least recently used solution once it is full.
+ * Hits, misses and evictions are counted with LongAdders, which threads can bump without contending.
+ */
+public class SolutionCache {
+
+    private static final int MAX_STRIPES = 16;
+
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity the most solutions kept (at least 1)
+     */
+    public SolutionCache(int capacity){
+
+        int count = Math.max(1, Math.min(MAX_STRIPES, capacity / 64));
+        stripes = new Stripe[count];
+        for(int i = 0; i < count; ++i)
+            stripes[i] = new Stripe(Math.max(1, capacity / count));
+    }
+
+    /**
+     * Looks up the solution of a board
+     * @param layout the layout of the board
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @return the directions of the moves of an optimal solution, or null if the board is not in the cache
+     */
+    public byte[] get(BoardLayout layout, long[] state, int offset){
+
+        Key key = new Key(layout, state, offset);
+        byte[] moves = stripeOf(key).get(key);
+        if(moves == null){
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return key.transposed ? transposeMoves(moves) : moves.clone();
+    }
+
+    /**
+     * Adds the solution of a board (and so of its reflection)
+     * @param layout the layout of the board
+     * @param state array holding the packed state
+     * @param offset index of the first word of the state in the array
+     * @param moves the directions of the moves of an optimal solution (never a bounded one, the cache hands it out as optimal)
+     */
+    public void put(BoardLayout layout, long[] state, int offset, byte[] moves){
+
+        Key key = new Key(layout, state, offset);
+        stripeOf(key).put(key, key.transposed ? transposeMoves(moves) : moves.clone());
+    }
+
+    public long getHits(){
+        return hits.sum();
+    }
+
+    public long getMisses(){
+        return misses.sum();
+    }
+
+    public long getEvictions(){
+        return evictions.sum();
+    }
+
+    /**
+     * Grabs the share of look-ups that found a solution
+     * @return hits / (hits + misses), 0 if nothing was looked up yet
+     */
+    public double getHitRate(){
+        long found = getHits();
+        long total = found + getMisses();
+        return total == 0 ? 0 : (double) found / total;
+    }
+
+    /**
+     * Counts the solutions in the cache
+     * @return the number of solutions
+     */
+    public int size(){
+        int size = 0;
+        for(Stripe stripe : stripes)
+            size += stripe.size();
+        return size;
+    }
+
+    public String toString(){
+        return String.format("%d solutions cached, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                             size(), getHits(), getMisses(), 100 * getHitRate(), getEvictions());
+    }
+
+    private Stripe stripeOf(Key key){
+        return stripes[(key.hash >>> 16) % stripes.length];
+    }
+
+    private static byte[] transposeMoves(byte[] moves){
+        byte[] transposed = new byte[moves.length];
+        for(int i = 0; i < moves.length; ++i)
+            transposed[i] = (byte) BoardLayout.transposeDirection(moves[i]);
+        return transposed;
+    }
+
+    /**
+     * The canonical form of a board: the lower of its packed state and the packed state of its reflection
+     */
+    private static final class Key {
+
+        final int edgeLength;       // Boards of different sizes can pack to the same longs
+        final long[] state;
+        final int hash;
+        final boolean transposed;   // True if the reflection was the lower one
+
+        Key(BoardLayout layout, long[] board, int offset){
+
+            long[] original = Arrays.copyOfRange(board, offset, offset + layout.words);
+            long[] reflected = new long[layout.words];
+            layout.transpose(original, 0, reflected, 0);
+
+            edgeLength = layout.edgeLength;
+            transposed = Arrays.compare(reflected, original) < 0;
+            state = transposed ? reflected : original;
+            hash = layout.hash(state, 0) & 0x7FFFFFFF;
+        }
+
+        public boolean equals(Object other){
+            return other instanceof Key && ((Key) other).edgeLength == edgeLength && Arrays.equals(((Key) other).state, state);
+        }
+
+        public int hashCode(){
+            return hash;
+        }
+    }
+
+    /**
+     * One least recently used map and its lock
+     */
+    private final class Stripe {
+
+        private final LinkedHashMap<Key, byte[]> map;
+
+        Stripe(int capacity){
+            map = new LinkedHashMap<Key, byte[]>(16, 0.75f, true){
+                protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest){
+                    if(size() <= capacity)
+                        return false;
+                    evictions.increment();
+                    return true;
+                }
+            };
+        }
+
+        synchronized byte[] get(Key key){
+            return map.get(key);
+        }
+
+        synchronized void put(Key key, byte[] moves){
+            map.put(key, moves);
+        }
+
+        synchronized int size(){
+            return map.size();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Common interface of our search algorithms (A*, IDA*, ...), so the game can pick one without knowing which it is.
+ * A solver is created for one board size and can be reused for many boards, one at a time.
+ * To run solves in the background, with deadlines and cancellation, see AsyncSolver.
+ */
+public interface Solver {
+
+    /**
+     * Solves a board, with no limits. The board passed in is not modified.
+     * @param startBoard the board to solve
+     * @return the result of the search: the moves of the solution (if any) and how much work it took
+     */
+    default SearchResult solve(Board startBoard){
+        return solve(startBoard, new SearchLimits());
+    }
+
+    /**
+     * Solves a board, stopping early if one of the limits is reached (see SearchLimits). The board passed in is not modified.
+     * @param startBoard the board to solve
+     * @param limits the limits of the search
+     * @return the result of the search: the moves of the solution (or of a partial path if the search was stopped),
+     *         how the search ended and how much work it took
+     */
+    SearchResult solve(Board startBoard, SearchLimits limits);
+
+    /**
+     * Grabs how far from optimal the last solution found may be. The optimal algorithms always return 1, weighted A* and
+     * ARA* return the bound they proved (see WeightedSearch). Only solutions with a bound of 1 may be cached (see CachingSolver).
+     * @return the last solution is at most this many times longer than the optimal one
+     */
+    default double getBound(){
+        return 1;
+    }
+}
@@ -0,0 +1,315 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long running solver, so many boards can be solved without paying for a JVM start and JIT warm-up per board.
+ * Clients connect over TCP and talk a line protocol: one board per line, one result per line.
+ *
+ * Request:     <board> [timeoutMillis]         (ex: "867254301 500", or "1,2,3,...,15,0")
+ *              STATS                           the search totals of the server (see SearchStatistics)
+ *              QUIT                            closes the connection once every earlier request is answered
+ * Response:    <status> <moves> <letters>      (ex: "SOLVED 31 ULDR...", "UNSOLVABLE 0 -")
+ *              status is a SearchResult.Status: a search that runs out of time answers TIMED_OUT with the moves toward
+ *              the closest board it reached. letters holds one letter per move (see SearchResult.getMovesAsString).
+ *              BUSY                            no solver freed up before the request's deadline
+ *              ERROR <reason>                  the line is not a valid board
+ *
+ * Requests may be pipelined: a client can send many lines without waiting, and the results come back in the same order.
+ * Every request is solved on its own task, so requests of one connection are solved at the same time.
+ *
+ * Every connection and every request runs on a virtual thread when the JVM has them (Java 21 and later, looked up by
+ * reflection so the server still builds and runs on older JVMs, with a cached thread pool instead). The number of
+ * boards searched at once is bounded by a semaphore of solver permits (one per processor by default), so a burst of
+ * requests queues up instead of overloading the machine. Back-pressure works at two levels:
+ *      a connection holds at most PIPELINE_DEPTH unanswered requests, after which the server stops reading from it
+ *      (and TCP stops the client from sending more)
+ *      a request that cannot get a permit before its deadline is answered BUSY right away, without searching
+ *
+ * Solvers are reused: an idle solver per board size is taken from a pool when a permit is granted, and given back
+ * after the search. They all share one SolutionCache, so a board asked for again is answered without searching.
+ *
+ * Usage: java TilesDriver serve [port] [algorithm] [heuristic] [permits] [defaultTimeoutMillis]
+ */
+public class SolverServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7341;
+    public static final int PIPELINE_DEPTH = 64;            // Unanswered requests per connection before reading stops
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+    private final Algorithm algorithm;
+    private final HeuristicType heuristic;
+    private final long defaultTimeoutMillis;
+    private final Semaphore permits;                        // One per board being searched
+    private final List<ConcurrentLinkedQueue<Solver>> idleSolvers;  // Reusable solvers, per edge length
+    private final SolutionCache cache;
+    private final ExecutorService executor;                 // Runs the connections and the requests
+    private final ServerSocket serverSocket;
+
+    /**
+     * Creates a server listening on the loopback address (it only takes connections from this machine)
+     * @param port the port to listen on (0 picks a free one, see getPort)
+     * @param algorithm the algorithm to solve the boards with
+     * @param heuristic the heuristic guiding it
+     * @param permits the most boards searched at once
+     * @param defaultTimeoutMillis the time a request may take if it does not say
+     * @throws IOException if the port cannot be opened
+     */
+    public SolverServer(int port, Algorithm algorithm, HeuristicType heuristic, int permits, long defaultTimeoutMillis) throws IOException {
+
+        this.algorithm = algorithm;
+        this.heuristic = heuristic;
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        this.permits = new Semaphore(permits, true);
+        this.idleSolvers = new ArrayList<>(BoardLayout.MAX_EDGE_LENGTH + 1);
+        for(int i = 0; i <= BoardLayout.MAX_EDGE_LENGTH; ++i)
+            idleSolvers.add(new ConcurrentLinkedQueue<>());
+        this.cache = new SolutionCache(Constants.SOLUTION_CACHE_SIZE);
+        this.executor = newExecutor();
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public static void main(String[] args){
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Algorithm algorithm = args.length > 1 ? Algorithm.fromName(args[1]) : Algorithm.ASTAR;
+        HeuristicType heuristic = args.length > 2 ? HeuristicType.fromName(args[2]) : HeuristicType.MANHATTAN;
+        int permits = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long timeout = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_TIMEOUT_MILLIS;
+
+        SearchStatistics.getInstance().register();
+        try(SolverServer server = new SolverServer(port, algorithm, heuristic, permits, timeout)){
+            System.err.println("Solving with " + algorithm + " and " + heuristic + " on port " + server.getPort() + ", "
+                               + permits + " boards at once, " + (isVirtual() ? "virtual threads" : "platform threads"));
+            server.acceptConnections();
+        }
+        catch(IOException e){
+            System.err.println("Server failed: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Creates an executor starting a virtual thread per task if the JVM has them, or a cached pool of daemon threads otherwise
+     */
+    static ExecutorService newExecutor(){
+        try{
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(ReflectiveOperationException e){
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Checks if the JVM has virtual threads (Java 21 and later)
+     */
+    static boolean isVirtual(){
+        try{
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        }
+        catch(NoSuchMethodException e){
+            return false;
+        }
+    }
+
+    public int getPort(){
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Takes connections until the server is closed, each one handled on its own thread
+     * @throws IOException if the server socket fails (not when it is closed)
+     */
+    public void acceptConnections() throws IOException {
+
+        while(!serverSocket.isClosed()){
+            Socket socket;
+            try{
+                socket = serverSocket.accept();
+            }
+            catch(SocketException e){   // The server was closed
+                if(serverSocket.isClosed())
+                    return;
+                throw e;
+            }
+            socket.setTcpNoDelay(true);
+            executor.execute(() -> serve(socket));
+        }
+    }
+
+    /**
+     * Starts taking connections on a background thread
+     */
+    public void start(){
+        executor.execute(() -> {
+            try{
+                acceptConnections();
+            }
+            catch(IOException e){
+                System.err.println("Server failed: " + e);
+            }
+        });
+    }
+
+    /**
+     * Reads the requests of one connection. Each request is started at once, and its future result is queued in the
+     * order the requests came; a second thread writes the results from the queue. The queue is bounded, so a client that
+     * sends faster than the server answers is stopped by the blocked reader.
+     */
+    private void serve(Socket socket){
+
+        try(Socket connection = socket;
+            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))){
+
+            BlockingQueue<CompletableFuture<String>> pending = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+            CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> writeResults(pending, out), executor);
+
+            String line;
+            while((line = in.readLine()) != null){
+                String request = line.trim();
+                if(request.isEmpty())
+                    continue;
+                if(request.equals("QUIT"))
+                    break;
+                long received = System.nanoTime();
+                pending.put(CompletableFuture.supplyAsync(() -> handle(request, received), executor));
+            }
+            pending.put(CompletableFuture.completedFuture(null));  // Tells the writer there is nothing more
+            writer.join();
+        }
+        catch(IOException e){
+            // The client went away, nothing left to answer
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the results of one connection in request order. The output is only flushed once no result is ready, so
+     * pipelined results go out together. If the client goes away, the results left are still taken from the queue
+     * (and dropped), so the reader is never left blocked on a full queue.
+     */
+    private void writeResults(BlockingQueue<CompletableFuture<String>> pending, Writer out){
+
+        boolean connected = true;
+        try{
+            while(true){
+                String result = pending.take().join();
+                if(result == null)
+                    break;
+                if(!connected)
+                    continue;
+                try{
+                    out.write(result);
+                    out.write('\n');
+                    CompletableFuture<String> next = pending.peek();
+                    if(next == null || !next.isDone())
+                        out.flush();
+                }
+                catch(IOException e){
+                    connected = false;
+                }
+            }
+            if(connected)
+                out.flush();
+        }
+        catch(IOException e){
+            // The client went away, nothing left to answer
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Answers one request line
+     * @param request the line, without its end
+     * @param received System.nanoTime() when the line was read (its deadline counts from then)
+     * @return the result line, without its end
+     */
+    String handle(String request, long received){
+
+        if(request.equals("STATS"))
+            return SearchStatistics.getInstance().toString();
+
+        String[] fields = request.split("\\s+");
+        long timeout = defaultTimeoutMillis;
+        Board board;
+        try{
+            if(fields.length > 2)
+                throw new NumberFormatException("Expected a board and an optional timeout, not " + fields.length + " fields");
+            if(fields.length == 2)
+                timeout = Long.parseLong(fields[1]);
+            TilesDriver.checkBoardString(fields[0]);
+            board = new Board(fields[0]);
+        }
+        catch(NumberFormatException e){
+            return "ERROR " + e.getMessage();
+        }
+        long deadline = received + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        try{
+            if(!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+                return "BUSY";
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            return "BUSY";
+        }
+
+        BoardLayout layout = board.getLayout();
+        Solver solver = idleSolvers.get(layout.edgeLength).poll();
+        try{
+            if(solver == null)
+                solver = new CachingSolver(algorithm.create(layout, heuristic.create(layout)), cache);
+            SearchResult result = solver.solve(board, new SearchLimits().deadline(deadline).partialResults(true));
+            return result.getStatus() + " " + result.getMoveCount() + " "
+                   + (result.getMoveCount() > 0 ? result.getMovesAsString() : "-");
+        }
+        catch(RuntimeException e){     // Ex: an algorithm that does not handle this board size
+            return "ERROR " + e.getMessage();
+        }
+        finally{
+            if(solver != null)
+                idleSolvers.get(layout.edgeLength).add(solver);
+            permits.release();
+        }
+    }
+
+    /**
+     * Stops taking connections and stops the threads of the server
+     */
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+}
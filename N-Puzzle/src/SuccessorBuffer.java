@@ -0,0 +1,67 @@
+/**
+ * A reusable buffer holding the children (successors) of one board. This is the innermost loop of every search,
+ * so nothing here allocates: a search creates one buffer and refills it for every board it expands.
+ *
+ * The legal moves are read straight from the neighbor table of the layout (see BoardLayout.neighbor), using the
+ * position of the open slot. A board has 2 to 4 legal moves, and the move that would undo the move that created
+ * the board is skipped, since it only leads back to the parent.
+ *
+ * For every child i (0 to count - 1) the buffer holds:
+ *      its packed state, starting at states[i * layout.words]
+ *      the position of its open slot in blank[i]
+ *      its heuristic value in heuristic[i], updated from its parent's value (see Heuristic.update)
+ *      the direction the tile moved in move[i] (Constants.UP, RIGHT, DOWN or LEFT)
+ */
+public class SuccessorBuffer {
+
+    final BoardLayout layout;
+    final Heuristic heuristicFunction;
+    final long[] states = new long[4 * BoardLayout.MAX_WORDS];
+    final int[] blank = new int[4];
+    final int[] heuristic = new int[4];
+    final int[] move = new int[4];
+    int count;
+
+    /**
+     * @param layout the layout of the boards that will be expanded
+     * @param heuristicFunction the heuristic the children are evaluated with
+     */
+    public SuccessorBuffer(BoardLayout layout, Heuristic heuristicFunction){
+        this.layout = layout;
+        this.heuristicFunction = heuristicFunction;
+    }
+
+    /**
+     * Fills the buffer with the children of a board
+     * @param state array holding the packed state of the board being expanded
+     * @param offset index of the first word of the state in the array
+     * @param blankPosition position of the open slot of the board
+     * @param parentHeuristic heuristic value of the board
+     * @param lastMove direction of the move that created the board (Constants.NO_MOVE for the start board)
+     * @return the number of children generated
+     */
+    public int generate(long[] state, int offset, int blankPosition, int parentHeuristic, int lastMove){
+
+        int words = layout.words;
+        int undo = lastMove == Constants.NO_MOVE ? Constants.NO_MOVE : Constants.opposite(lastMove);
+        count = 0;
+
+        for(int direction = 0; direction < 4; ++direction){
+
+            int from = layout.neighbor(blankPosition, direction);  // Position of the tile that would slide into the open slot
+            if(from < 0 || direction == undo)
+                continue;
+
+            int childOffset = count * words;
+            System.arraycopy(state, offset, states, childOffset, words);
+            int tile = layout.tileAt(states, childOffset, from);
+            layout.moveTile(states, childOffset, from, blankPosition);
+
+            blank[count] = from;
+            heuristic[count] = heuristicFunction.update(parentHeuristic, states, childOffset, tile, from, blankPosition);
+            move[count] = direction;
+            count++;
+        }
+        return count;
+    }
+}
@@ -1,3 +1,4 @@
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
@@ -15,11 +16,44 @@ import java.util.Scanner;
  *  1 will randomize a board for them.
  *  2 will prompt the user once more for a board they had in mind
  *
+ *  The algorithm used by "s" can be picked on the command line (ex: java TilesDriver idastar), A* is used by default.
+ *  So can its heuristic (ex: java TilesDriver idastar pdb), the Manhattan distance is used by default.
+ *
+ *  Many boards can be solved at once, without playing, with: java TilesDriver batch boards.txt (see BatchSolver).
+ *  Every board can be counted by its distance from the goal with: java TilesDriver bfs 3 (see ExternalBfs).
+ *  Boards can be solved for other programs over a local socket with: java TilesDriver serve (see SolverServer),
+ *  and the server can be loaded with: java TilesDriver loadtest (see LoadTestClient).
+ *
  */
 public class TilesDriver {
 
     public static void main (String[] args) {
 
+        if(args.length > 0 && args[0].equals("batch")){  // Solve a file of boards instead of playing (see BatchSolver)
+            BatchSolver.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if(args.length > 0 && args[0].equals("bfs")){    // Breadth-first search of every board, on disk (see ExternalBfs)
+            ExternalBfs.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if(args.length > 0 && args[0].equals("serve")){  // Solve boards sent over a local socket (see SolverServer)
+            SolverServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if(args.length > 0 && args[0].equals("loadtest")){   // Send boards to a running SolverServer (see LoadTestClient)
+            try{
+                LoadTestClient.main(Arrays.copyOfRange(args, 1, args.length));
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        Algorithm algorithm = args.length > 0 ? Algorithm.fromName(args[0]) : Algorithm.ASTAR;   // Algorithm used when the user presses "s"
+        HeuristicType heuristic = args.length > 1 ? HeuristicType.fromName(args[1]) : HeuristicType.MANHATTAN;  // Heuristic guiding it
+
         printAuthorInformation();
         Scanner sc = new Scanner(System.in);
         System.out.print("Enter your choice --> ");
@@ -35,12 +69,12 @@ public class TilesDriver {
             try{
                 // This if condition is for when the user wants to just run the A* algorithm
                 if(userInput.equals("s") && loopCounter > 0) {
-                    userWantsToRunAlgorithm(theBoard);
-                    System.exit(0);
+                    userWantsToRunAlgorithm(theBoard, sc, algorithm, heuristic);
+                    return;
                 }
                 else if(userInput.equals("0")) {            // User wants to terminate the program
                     System.out.println("Thank you for playing. Goodbye.");
-                    System.exit(0);
+                    return;
                 }
 
                 if(loopCounter == 0){               //Start of the program. Prompts user how they want to play.
@@ -52,6 +86,7 @@ public class TilesDriver {
                     }
                     else if (userInput.equals("2")){ // Prompts user for a board
                         System.out.println("Some boards such as 728045163 are impossible." + "\nOthers such as 245386107 are possible." +
+                                           "\nLarger boards are entered with commas, such as 1,2,3,4,5,6,7,8,9,10,11,12,13,14,0,15" +
                                            "\nEnter a string of 9 digits (including 0) for the board --> ");
                         userWantsOwnPuzzle = true;
                     }
@@ -63,13 +98,15 @@ public class TilesDriver {
                 else if(loopCounter >= 1){
 
                     if(loopCounter == 1 && userWantsOwnPuzzle){
-                        checkIfValidString(userInput);  // Checks for errors: if the string user input works for an N-puzzle
+                        if(checkIfValidString(userInput))   // Checks for errors: if the string user input works for an N-puzzle
+                            return;                         // The user started off with the goal board
                         theBoard = new Board(userInput);
                         System.out.println("This is the board you will start with: ");
                     }
                     else if (!theBoard.checkValidAndMove(Integer.parseInt(userInput)))      // Checks to see if user input is a valid move. If it is valid, then it moves it
                         System.out.println("Invalid move. Try again.\n"); loopCounter--;
-                        isGoalBoardMet(theBoard, loopCounter);  // Checks to see if Heuristic = 0
+                        if(isGoalBoardMet(theBoard, loopCounter))  // Checks to see if Heuristic = 0
+                            return;
                         printPuzzleUI(theBoard, loopCounter);   //Prints the board and heuristic value for the user.
                 }
                 loopCounter++;
@@ -105,43 +142,45 @@ public class TilesDriver {
     }
 
     /**
-     * Runs the A* Algorithm for the currently presented board displayed to the user.
-     * If the algorithm doesn't find a solution, it prints the best board
+     * Runs the chosen algorithm (A* by default) for the currently presented board displayed to the user.
+     * Impossible boards are caught by the parity check before searching. If the user asks for it,
+     * we then search (a bounded number of boards) for the closest board we can reach and print it.
      * @param theBoard
+     * @param sc the scanner used to ask the user if they want the closest board
+     * @param algorithm the algorithm to solve the board with
+     * @param heuristic the heuristic guiding the algorithm
      */
-    private static void userWantsToRunAlgorithm(Board theBoard){
+    private static void userWantsToRunAlgorithm(Board theBoard, Scanner sc, Algorithm algorithm, HeuristicType heuristic){
 
         System.out.println("Initial Board is: ");
         theBoard.displayBoard();
         System.out.println("Heuristic value: "+ theBoard.computeHeuristic());
         System.out.println("Solving puzzle automatically...");
 
-        SearchTree ST = new SearchTree(new Board(theBoard.getBoardAsString())); // Create an instance of our SearchTree class
-        boolean checkForPath = ST.isSolvable();                                 // Run our A* Algorithm
+        Solver solver = algorithm.create(theBoard.getLayout(), heuristic.create(theBoard.getLayout()));   // Create an instance of our solver (SearchTree for A*)
+        SearchResult result = solver.solve(theBoard);                           // Run our algorithm
 
-        if(checkForPath) {  // If there is a solution we enter here
-            ST.printPath(theBoard.getBoardAsString());
+        if(result.isSolved()) {  // If there is a solution we enter here
+            result.printPath(theBoard);
+            System.out.println("Solved in " + result.getSolutionLength() + " moves (" + result.getExpanded() + " boards expanded, "
+                               + result.getGenerated() + " generated with " + algorithm + " and " + heuristic + ").");
+            System.out.println("Search metrics: " + result.getMetrics());
             System.out.println("Done.");
         }
 
         else{               // If there is not a solution, we enter here
-            int minHeuristic = Integer.MAX_VALUE;
-            int boardCount = 0;
-            Node bestBoard = new Node();
+            System.out.println("That puzzle is impossible to solve (its tiles have the wrong parity).");
+            System.out.print("Enter \"b\" to search for the closest board you can reach, anything else to quit --> ");
 
-            for( String key : ST.hmap.keySet() ){   // Helps us find the best puzzle that is not the actual solutio
+            if(sc.next().equals("b")){
+                SearchTree ST = new SearchTree(theBoard);                                // The closest board is always found with A*
+                Board bestBoard = ST.findClosestBoard(Constants.CLOSEST_BOARD_LIMIT);  // Helps us find the best puzzle that is not the actual solution
 
-                if(ST.hmap.get(key).heuristicValue < minHeuristic) {
-                    minHeuristic = ST.hmap.get(key).heuristicValue;
-                    bestBoard = ST.hmap.get(key);
-                }
-                boardCount++;
+                System.out.println(ST.getBoardsVisited() + " boards have been tried.  Best board found was: ");
+                System.out.println("");
+                bestBoard.displayBoard();
+                System.out.println("Heuristic value: " + bestBoard.computeHeuristic());
             }
-
-            System.out.println("All "+ boardCount + " moves have been tried.");
-            System.out.println("That puzzle is impossible to solve.  Best board found was: ");
-            bestBoard.displayNode();
-            System.out.println("Heuristic value: " +minHeuristic);
             System.out.println("Done.");
         }
     }
@@ -149,33 +188,45 @@ public class TilesDriver {
     /**
      * Parses the string user inputted (when user pressed 2 to create their own starting puzzle board) and checks to see if it is valid
      * @param userInput userInput is the string the user inputted
-     * @return returns true if the board passed all the tests, throws an exception otherwise
+     * @return returns true if the board is already the goal (the game is then over), false if it can be played.
+     *         Throws an exception if the board is not valid
      */
-    private static void checkIfValidString(String userInput){
-
-        char[] userInputInArray = userInput.toCharArray();          // Holds the string user inputs and stores into char array
-        boolean [] isDupNumber = new boolean[Constants.BOARD_SIZE]; // Used to make sure no duplicates were inputted
-        for(int i = 0; i < isDupNumber.length; ++i)                 // Initialize the boolean duplicate checker array to false
-            isDupNumber[i] = false;
+    private static boolean checkIfValidString(String userInput){
 
-        if(userInput.equals(Constants.goalState8Puzzle)){
+        checkBoardString(userInput);
+        if(new Board(userInput).computeHeuristic() == 0){
             System.out.println("Congratulations. You started off with the goal board. You're really good...");
-            System.exit(0);
+            return true;
         }
+        return false;
+    }
+
+    /**
+     * Checks that a board string holds every tile of an N x N board exactly once (also used by the BatchSolver)
+     * @param userInput the board string (ex: 245386107, or 1,2,3,...,15,0 for larger boards)
+     * @throws NumberFormatException if the string is not a valid board
+     */
+    static void checkBoardString(String userInput){
+
+        int[] userInputInArray = Board.parseTiles(userInput);       // Holds the tiles of the string user inputs (throws if one is not a number)
+        int boardSize = userInputInArray.length;
+        int edgeLength = (int) Math.round(Math.sqrt(boardSize));
+        boolean [] isDupNumber = new boolean[boardSize];            // Used to make sure no duplicates were inputted
+        for(int i = 0; i < isDupNumber.length; ++i)                 // Initialize the boolean duplicate checker array to false
+            isDupNumber[i] = false;
 
-        if(userInputInArray.length != Constants.BOARD_SIZE)         // If user didn't enter n-puzzle characters, then not enough to be placed on board.
-            throw new NumberFormatException("Sorry, you did not enter in enough characters/numbers.");
+        if(edgeLength * edgeLength != boardSize || edgeLength < BoardLayout.MIN_EDGE_LENGTH
+                || edgeLength > BoardLayout.MAX_EDGE_LENGTH)        // If user didn't enter N x N tiles, then they can't be placed on a board.
+            throw new NumberFormatException("Sorry, you did not enter in the right number of characters/numbers (9 for a 3x3 board, 16 for 4x4, ...).");
 
-        //Iterate through each character user input
-        for(int i = 0; i < Constants.BOARD_SIZE; ++i){
+        //Iterate through each tile user input
+        for(int i = 0; i < boardSize; ++i){
 
-            if (!Character.isDigit(userInputInArray[i]))                                                        // Every character must be a digit
-                throw new NumberFormatException("You did not enter a valid digit.");
-            if(userInputInArray[i] - '0' < 0 || userInputInArray[i] - '0' > (Constants.BOARD_SIZE-1) )          // Check to see if the parsed character is within the range of valid numbers ( 0 to (N - 1) )
-                throw new NumberFormatException("One or more characters inputted is not between the range 0-8");
-            if(!isDupNumber[(userInputInArray[i] - '0')])                                                       // If user character is not in the dup array, add it to the array
-                isDupNumber[(userInputInArray[i] - '0')] = true;
-            else if (isDupNumber[userInputInArray[i]- '0'])                                                     // Otherwise, it already is in the dup array and we have a problem!
+            if(userInputInArray[i] < 0 || userInputInArray[i] > (boardSize-1) )                                 // Check to see if the parsed tile is within the range of valid numbers ( 0 to (N - 1) )
+                throw new NumberFormatException("One or more characters inputted is not between the range 0-" + (boardSize - 1));
+            if(!isDupNumber[userInputInArray[i]])                                                               // If user tile is not in the dup array, add it to the array
+                isDupNumber[userInputInArray[i]] = true;
+            else if (isDupNumber[userInputInArray[i]])                                                          // Otherwise, it already is in the dup array and we have a problem!
                 throw new NumberFormatException("You have a duplicated number. Rerun the program and try again.");
         }
     }
@@ -193,16 +244,18 @@ public class TilesDriver {
     }
 
     /**
-     * Prints the board we are currently on and it's heuristic value
+     * Checks if the user has reached the goal board, and congratulates them if they have
      * @param theBoard Holds teh current board
      * @param loopCounter Holds the current loop counter
+     * @return true if the goal is met (the game is then over)
      */
-    private static void isGoalBoardMet(Board theBoard, int loopCounter){
+    private static boolean isGoalBoardMet(Board theBoard, int loopCounter){
         if(theBoard.computeHeuristic() == 0){       // If user has found the solution path we enter here
             printPuzzleUI(theBoard, loopCounter);   //Prints the board and heuristic value for the user.
             System.out.println("Congratulations, you found a solution to the puzzle.\n Done.");
-            System.exit(0);
+            return true;
         }
+        return false;
     }
 
 }
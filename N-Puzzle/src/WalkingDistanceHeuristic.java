@@ -0,0 +1,167 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The walking distance heuristic (Takahashi). Instead of looking at each tile alone like the Manhattan distance,
+ * it looks at every row as a whole: for each row, how many of its tiles belong in each goal row.
+ * Sliding a tile up or down moves one such tile into the row of the open slot, and the fewest such moves needed to
+ * reach the goal counts are precomputed for every possible table of counts by a breadth-first search.
+ * The same is done for the columns (with the tiles' goal columns), and the two are added up: a move is either vertical
+ * or horizontal, so it only ever helps one of them. The result is never below the Manhattan distance and usually well above.
+ *
+ * A vertical move only changes the row counts, so an update only looks up the row part again (and the columns for a
+ * horizontal move). The tables are small (24964 count tables for the 15-puzzle) and shared by every search of a size,
+ * but their number grows very quickly with the board size, so only boards up to 4x4 are supported.
+ */
+public class WalkingDistanceHeuristic implements Heuristic {
+
+    static final int MAX_EDGE_LENGTH = 4;
+    private static final int BITS = 3;      // Bits per count (a count is at most the edge length)
+
+    private static final long[][] KEYS = new long[MAX_EDGE_LENGTH + 1][];        // Sorted count tables per edge length
+    private static final byte[][] DISTANCES = new byte[MAX_EDGE_LENGTH + 1][];   // Walking distance of each count table
+
+    private final BoardLayout layout;
+    private final int edgeLength;
+    private final long[] keys;          // Every reachable table of counts, encoded as in encode(), sorted
+    private final byte[] distances;     // Walking distance of keys[i]
+
+    /**
+     * @param layout the layout of the boards to evaluate
+     * @throws IllegalArgumentException if the board is larger than 4x4
+     */
+    public WalkingDistanceHeuristic(BoardLayout layout){
+
+        if(layout.edgeLength > MAX_EDGE_LENGTH)
+            throw new IllegalArgumentException("The walking distance is only supported up to " + MAX_EDGE_LENGTH + "x" + MAX_EDGE_LENGTH);
+        this.layout = layout;
+        this.edgeLength = layout.edgeLength;
+        synchronized(KEYS){
+            if(KEYS[edgeLength] == null)
+                buildTable(edgeLength);
+            keys = KEYS[edgeLength];
+            distances = DISTANCES[edgeLength];
+        }
+    }
+
+    public boolean isConsistent(){
+        return true;        // A move changes only one of the two walking distances, by 1
+    }
+
+    public int estimate(long[] state, int offset){
+        return lookUp(countKey(state, offset, true)) + lookUp(countKey(state, offset, false));
+    }
+
+    public int update(int heuristic, long[] state, int offset, int tile, int from, int to){
+
+        boolean vertical = Math.abs(from - to) == edgeLength;   // A tile moving sideways stays in its row
+        int goal = vertical ? (tile - 1) / edgeLength : (tile - 1) % edgeLength;
+        int fromLine = vertical ? from / edgeLength : from % edgeLength;
+        int toLine = vertical ? to / edgeLength : to % edgeLength;
+
+        long after = countKey(state, offset, vertical);
+        long before = after - cell(toLine, goal) + cell(fromLine, goal);    // The tile was still counted in the line it came from
+        return heuristic - lookUp(before) + lookUp(after);
+    }
+
+    /**
+     * Builds the table of counts of a board, for its rows or its columns. Count (line, goal) is the number of tiles in
+     * the line whose goal is in line goal. The open slot is not counted.
+     * @param row true for the rows, false for the columns
+     * @return the encoded table
+     */
+    private long countKey(long[] state, int offset, boolean row){
+
+        long key = 0;
+        for(int position = 0; position < layout.boardSize; ++position){
+            int tile = layout.tileAt(state, offset, position);
+            if(tile != 0)
+                key += row ? cell(position / edgeLength, (tile - 1) / edgeLength) : cell(position % edgeLength, (tile - 1) % edgeLength);
+        }
+        return key;
+    }
+
+    private long cell(int line, int goal){
+        return 1L << ((line * edgeLength + goal) * BITS);
+    }
+
+    private int lookUp(long key){
+        return distances[Arrays.binarySearch(keys, key)];
+    }
+
+    /**
+     * Runs the breadth-first search over the tables of counts, starting from the goal (every tile in its goal line and
+     * the open slot in the last line). The line holding the open slot is the one with one tile less.
+     * @param edgeLength the edge length of the board
+     */
+    private static void buildTable(int edgeLength){
+
+        int[][] counts = new int[edgeLength][edgeLength];
+        for(int line = 0; line < edgeLength; ++line)
+            counts[line][line] = line == edgeLength - 1 ? edgeLength - 1 : edgeLength;
+
+        HashMap<Long, Integer> distance = new HashMap<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        long goal = encode(counts, edgeLength);
+        distance.put(goal, 0);
+        queue.add(goal);
+
+        while(!queue.isEmpty()){
+
+            long key = queue.poll();
+            int cost = distance.get(key);
+            decode(key, counts, edgeLength);
+
+            int blankLine = 0;
+            for(int line = 0; line < edgeLength; ++line)
+                if(Arrays.stream(counts[line]).sum() == edgeLength - 1)
+                    blankLine = line;
+
+            // A tile of the line above or below slides into the line of the open slot, which then moves to the tile's line
+            for(int neighbor = blankLine - 1; neighbor <= blankLine + 1; neighbor += 2){
+                if(neighbor < 0 || neighbor >= edgeLength)
+                    continue;
+                for(int goalLine = 0; goalLine < edgeLength; ++goalLine){
+                    if(counts[neighbor][goalLine] == 0)
+                        continue;
+                    counts[neighbor][goalLine]--;
+                    counts[blankLine][goalLine]++;
+                    long child = encode(counts, edgeLength);
+                    if(!distance.containsKey(child)){
+                        distance.put(child, cost + 1);
+                        queue.add(child);
+                    }
+                    counts[neighbor][goalLine]++;
+                    counts[blankLine][goalLine]--;
+                }
+            }
+        }
+
+        long[] keys = new long[distance.size()];
+        int i = 0;
+        for(long key : distance.keySet())
+            keys[i++] = key;
+        Arrays.sort(keys);
+        byte[] distances = new byte[keys.length];
+        for(i = 0; i < keys.length; ++i)
+            distances[i] = (byte) (int) distance.get(keys[i]);
+
+        KEYS[edgeLength] = keys;
+        DISTANCES[edgeLength] = distances;
+    }
+
+    private static long encode(int[][] counts, int edgeLength){
+        long key = 0;
+        for(int line = 0; line < edgeLength; ++line)
+            for(int goal = 0; goal < edgeLength; ++goal)
+                key |= (long) counts[line][goal] << ((line * edgeLength + goal) * BITS);
+        return key;
+    }
+
+    private static void decode(long key, int[][] counts, int edgeLength){
+        for(int line = 0; line < edgeLength; ++line)
+            for(int goal = 0; goal < edgeLength; ++goal)
+                counts[line][goal] = (int) (key >>> ((line * edgeLength + goal) * BITS)) & ((1 << BITS) - 1);
+    }
+}
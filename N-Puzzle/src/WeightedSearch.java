@@ -0,0 +1,332 @@
+import java.util.Arrays;
+
+/**
+ * Weighted A* and its anytime form, ARA*, for callers that want a good solution fast rather than the best one slowly.
+ *
+ * Weighted A* orders the boards by f = g + w * h instead of g + h. A weight w above 1 trusts the heuristic more and
+ * heads for the goal with far fewer expansions, and the solution found is at most w times longer than the optimal one.
+ *
+ * ARA* (anytime repairing A*) runs weighted A* again and again with a lower weight each time, down to 1, and reuses
+ * the work of the earlier runs: boards are never forgotten, only boards whose g got better are expanded again. Each
+ * run stops as soon as no board in the queue could lead to a shorter path to the goal under the current weight. After
+ * every run the solution and its proven bound are handed to a SolutionListener: the bound is the lower of w and
+ * g(goal) / the lowest g + h of the boards left to expand, so it can reach 1 (optimal) before the weight does.
+ *
+ * The heuristic must never overestimate (be admissible) for any bound to hold. ARA* also relies on it being consistent
+ * (see Heuristic.isConsistent): a board whose g gets better after it was expanded in a run is only expanded again in the
+ * next run, which keeps the bound of w only if no shorter path can go through it. With a heuristic that is not known to
+ * be consistent (ex: the pattern databases) such boards are reopened within the run instead, so every run is weighted
+ * A* with reopening: its solution is still at most w times optimal, and the last run (w = 1) is plain A*.
+ * The search ends once the solution is proven optimal, or when a limit (ex: a deadline, see SearchLimits) stops it.
+ * A stopped search that already has a solution returns it as solved, since any solution is better than none.
+ *
+ * Like SearchTree the boards are held in a ClosedSet and queued by handle in a BucketQueue. The weighted f is not an
+ * integer, so the queue key is WEIGHT_SCALE * f, with the weight rounded to a multiple of 1 / WEIGHT_SCALE.
+ * Every board also has a list status: OPEN (queued), CLOSED (expanded in this run) or INCONSISTENT (its g got better
+ * after it was expanded in this run, it is queued again in the next run, consistent heuristics only).
+ *
+ * The weight used by the "wastar" and "arastar" algorithms is set with -Dnpuzzle.weight=2.5 (2 by default). It is read
+ * each time one of their solvers is created (see defaultWeight), so a bad value fails that creation and nothing else.
+ */
+public class WeightedSearch implements Solver {
+
+    public static final String WEIGHT_PROPERTY = "npuzzle.weight";    // System property holding the weight of wastar and arastar
+    public static final double DEFAULT_WEIGHT = 2;          // Weight used when the property is not set
+    public static final double DEFAULT_WEIGHT_STEP = 0.5;   // Weight taken off after every run of ARA*
+    static final int WEIGHT_SCALE = 8;      // Queue keys are WEIGHT_SCALE * (g + w * h)
+
+    private static final byte SEEN = 0;         // In the closed set but in neither list (expanded in an earlier run)
+    private static final byte OPEN = 1;         // In the queue
+    private static final byte CLOSED = 2;       // Expanded in this run
+    private static final byte INCONSISTENT = 3; // Its g got better after it was expanded in this run
+
+    /**
+     * Receives every solution of ARA* that is shorter or has a lower bound than the last one
+     */
+    public interface SolutionListener {
+
+        /**
+         * @param solution the solution (with the counters of the search so far)
+         * @param bound the solution is at most this many times longer than the optimal one (1 means optimal)
+         */
+        void solutionFound(SearchResult solution, double bound);
+    }
+
+    private final BoardLayout layout;
+    private final Heuristic heuristic;      // Estimate of the moves left from a board
+    private final boolean reopen;           // True if boards improved after their expansion are expanded again in the same run
+    private final int initialWeight;        // Weight of the first run, times WEIGHT_SCALE
+    private final int weightStep;           // Weight taken off after every run, times WEIGHT_SCALE (0 for a single run)
+    private final SolutionListener listener;    // Told of every better solution, may be null
+    private final BucketQueue open = new BucketQueue();    // Closed set handles keyed by WEIGHT_SCALE * (g + w * h)
+    private final ClosedSet closedSet;
+    private byte[] status = new byte[1024]; // List status per handle
+    private final long[] parentState;       // Scratch space holding the packed state of the board being expanded
+    private final SuccessorBuffer successors;   // Reused buffer receiving the children of the board being expanded
+    private int weight;                     // Weight of the current run, times WEIGHT_SCALE
+    private int goalHandle;                 // Handle of the goal once it has been generated, -1 before
+    private double bound;                   // Proven bound of the best solution
+    private SearchLimits limits;            // Limits of the current search
+    private SearchResult.Status stopped;    // Limit that stopped the search, null if none did
+    private final SearchMetrics metrics = new SearchMetrics();  // Over every run
+
+    /**
+     * Reads the weight of the "wastar" and "arastar" algorithms from the npuzzle.weight system property
+     * @return the weight (DEFAULT_WEIGHT if the property is not set)
+     * @throws IllegalArgumentException if the property is not a number of 1 or more
+     */
+    public static double defaultWeight(){
+
+        String value = System.getProperty(WEIGHT_PROPERTY);
+        if(value == null)
+            return DEFAULT_WEIGHT;
+        try{
+            double weight = Double.parseDouble(value.trim());
+            if(weight >= 1 && !Double.isInfinite(weight))
+                return weight;
+        }
+        catch(NumberFormatException e){
+            // Reported below, with the other bad values
+        }
+        throw new IllegalArgumentException("-D" + WEIGHT_PROPERTY + " must be a number of 1 or more, got \"" + value + "\"");
+    }
+
+    /**
+     * Creates a weighted A* search (a single run)
+     * @param layout the layout of the boards to solve
+     * @param heuristic the heuristic to order the boards by (the bound only holds if it never overestimates, and the search
+     *                  reopens boards unless it is consistent, see Heuristic.isConsistent)
+     * @param weight the weight of the heuristic (1 or more, 1 is plain A*)
+     */
+    public WeightedSearch(BoardLayout layout, Heuristic heuristic, double weight){
+        this(layout, heuristic, weight, 0, null);
+    }
+
+    /**
+     * Creates an ARA* search
+     * @param layout the layout of the boards to solve
+     * @param heuristic the heuristic to order the boards by (the bound only holds if it never overestimates, and the search
+     *                  reopens boards within a run unless it is consistent, see Heuristic.isConsistent)
+     * @param weight the weight of the first run (1 or more)
+     * @param weightStep the weight taken off after every run (0 for a single run, like weighted A*)
+     * @param listener told of every better solution, may be null
+     * @throws IllegalArgumentException if the weight is below 1 or the step is negative
+     */
+    public WeightedSearch(BoardLayout layout, Heuristic heuristic, double weight, double weightStep, SolutionListener listener){
+
+        this.initialWeight = (int) Math.round(weight * WEIGHT_SCALE);
+        this.weightStep = (int) Math.round(weightStep * WEIGHT_SCALE);
+        if(!(weight < Double.POSITIVE_INFINITY) || initialWeight < WEIGHT_SCALE || this.weightStep < 0)
+            throw new IllegalArgumentException("The weight must be 1 or more and its step 0 or more, got " + weight + " and " + weightStep);
+        this.layout = layout;
+        this.heuristic = metrics.timed(heuristic);
+        this.reopen = !heuristic.isConsistent();
+        this.listener = listener;
+        closedSet = new ClosedSet(layout);
+        parentState = new long[layout.words];
+        successors = new SuccessorBuffer(layout, this.heuristic);
+    }
+
+    /**
+     * Solves a board, with one run or with runs of lower and lower weights (see the class comment)
+     * @param startBoard the board to solve (not modified)
+     * @param limits the limits of the search
+     * @return the best solution found (or the path to the closest board if a limit stopped the search before any) and the counters of the search
+     */
+    public SearchResult solve(Board startBoard, SearchLimits limits){
+
+        this.limits = limits;
+        stopped = null;
+        metrics.start();
+        closedSet.clear();
+        goalHandle = -1;
+        bound = Double.POSITIVE_INFINITY;
+        if(!startBoard.hasSolution())
+            return new SearchResult(false, null, metrics.finish(-1));
+
+        startBoard.copyBoardState(parentState, 0);
+        int handle = -closedSet.lookupOrInsert(parentState, 0) - 1;
+        closedSet.setHeuristic(handle, heuristic.estimate(parentState, 0));
+        closedSet.setBlank(handle, startBoard.getFreeSpacePosition());
+        status[handle] = OPEN;
+        if(layout.isGoal(parentState, 0))
+            goalHandle = handle;
+
+        byte[] best = null;
+        for(weight = initialWeight; ; weight = Math.max(WEIGHT_SCALE, weight - weightStep)){
+
+            metrics.iterations++;
+            queueOpenBoards();
+            improvePath();
+            if(stopped != null || goalHandle < 0)
+                break;
+
+            double runBound = Math.min(weight / (double) WEIGHT_SCALE, provenBound());
+            if(best == null || closedSet.getCost(goalHandle) < best.length || runBound < bound){
+                best = pathTo(goalHandle);
+                bound = Math.min(bound, runBound);
+                if(listener != null)
+                    listener.solutionFound(new SearchResult(SearchResult.Status.SOLVED, best.clone(), metrics.copy()), bound);
+            }
+            if(bound <= 1 || weight == WEIGHT_SCALE || weightStep == 0)
+                break;
+        }
+
+        metrics.peakClosed = closedSet.size();
+        if(best != null)
+            return new SearchResult(SearchResult.Status.SOLVED, best, metrics.finish(best.length));
+        if(stopped != null)
+            return new SearchResult(stopped, limits.isPartialResults() ? pathTo(closestHandle()) : null, metrics.finish(-1));
+        return new SearchResult(SearchResult.Status.UNSOLVABLE, null, metrics.finish(-1));
+    }
+
+    /**
+     * Grabs the proven bound of the last solution found (1 once it is proven optimal)
+     * @return the solution is at most this many times longer than the optimal one (infinity if none was found)
+     */
+    public double getBound(){
+        return bound;
+    }
+
+    /**
+     * Starts a run: queues the OPEN and INCONSISTENT boards again with the keys of the current weight.
+     * The CLOSED boards of the last run are left out, until their g gets better.
+     */
+    private void queueOpenBoards(){
+
+        open.clear();
+        for(int handle = 0; handle < closedSet.size(); ++handle){
+            if(status[handle] == OPEN || status[handle] == INCONSISTENT){
+                status[handle] = OPEN;
+                open.push(handle, key(handle));
+            }
+            else
+                status[handle] = SEEN;
+        }
+    }
+
+    /**
+     * One run of weighted A*. It stops once the goal is known and no queued board has a lower key than the goal's,
+     * so no board left could lead to a path the weight would prefer.
+     */
+    private void improvePath(){
+
+        while(!open.isEmpty()){
+
+            int totalCost = open.minKey();
+            int currentParent = open.pop();
+            if(status[currentParent] != OPEN || key(currentParent) != totalCost){  // Expanded already, or pushed again with a lower key
+                metrics.stalePops++;
+                continue;
+            }
+            if(goalHandle >= 0 && WEIGHT_SCALE * closedSet.getCost(goalHandle) <= totalCost){
+                open.push(currentParent, totalCost);    // Still open for the next run
+                return;
+            }
+
+            status[currentParent] = CLOSED;
+            int pathCost = closedSet.getCost(currentParent);
+            closedSet.copyState(currentParent, parentState, 0);
+            successors.generate(parentState, 0, closedSet.getBlank(currentParent), closedSet.getHeuristic(currentParent),
+                                closedSet.getMove(currentParent));
+            metrics.expanded++;
+            metrics.generated += successors.count;
+
+            for(int i = 0; i < successors.count; ++i){
+
+                int cost = pathCost + 1;
+                int child = closedSet.lookupOrInsert(successors.states, i * layout.words);
+                if(child < 0){
+                    child = -child - 1;
+                    if(child == status.length)
+                        status = Arrays.copyOf(status, status.length * 2);
+                    closedSet.setHeuristic(child, successors.heuristic[i]);
+                    closedSet.setBlank(child, successors.blank[i]);
+                    closedSet.setMove(child, successors.move[i]);
+                    closedSet.setCost(child, cost);
+                    closedSet.setParent(child, currentParent);
+                    status[child] = OPEN;
+                    open.push(child, key(child));
+                    if(successors.heuristic[i] == 0 && layout.isGoal(successors.states, i * layout.words))
+                        goalHandle = child;
+                }
+                else if(cost < closedSet.getCost(child)){
+                    closedSet.setCost(child, cost);
+                    closedSet.setParent(child, currentParent);
+                    closedSet.setMove(child, successors.move[i]);
+                    metrics.reopened++;
+                    if(!reopen && (status[child] == CLOSED || status[child] == INCONSISTENT))  // Not expanded again in this run, only in the next one
+                        status[child] = INCONSISTENT;
+                    else{
+                        status[child] = OPEN;
+                        open.push(child, key(child));
+                    }
+                }
+                else
+                    metrics.duplicates++;
+            }
+            if(open.size() > metrics.peakOpen)
+                metrics.peakOpen = open.size();
+
+            if(SearchLimits.isCheckDue(metrics.expanded)
+                    && (stopped = limits.check(metrics.expanded, closedSet.memoryUsage() + status.length)) != null)
+                return;
+        }
+    }
+
+    /**
+     * Grabs the queue key of a board under the current weight
+     * @param handle the handle of the board
+     * @return WEIGHT_SCALE * (g + w * h)
+     */
+    private int key(int handle){
+        return WEIGHT_SCALE * closedSet.getCost(handle) + weight * closedSet.getHeuristic(handle);
+    }
+
+    /**
+     * Bounds the goal's path once a run is over. Every board outside the two lists was expanded with its current g, so
+     * every optimal path goes through an OPEN or INCONSISTENT board that has its optimal g. The heuristic never
+     * overestimates, so the optimal length is at least the lowest g + h of those boards (consistent or not).
+     * @return g(goal) / the lowest g + h of the OPEN and INCONSISTENT boards (1 if there are none)
+     */
+    private double provenBound(){
+
+        int lowest = Integer.MAX_VALUE;
+        for(int handle = 0; handle < closedSet.size(); ++handle)
+            if(status[handle] == OPEN || status[handle] == INCONSISTENT)
+                lowest = Math.min(lowest, closedSet.getCost(handle) + closedSet.getHeuristic(handle));
+        if(lowest == Integer.MAX_VALUE || lowest == 0)
+            return 1;
+        return Math.max(1, closedSet.getCost(goalHandle) / (double) lowest);
+    }
+
+    /**
+     * Rebuilds the moves leading from the start board to a board, following the parents in the closed set
+     * @param target the handle of the last board of the path
+     * @return the directions of the moves, in order
+     */
+    private byte[] pathTo(int target){
+
+        int length = 0;
+        for(int handle = target; closedSet.getParent(handle) != ClosedSet.NO_PARENT; handle = closedSet.getParent(handle))
+            length++;
+
+        byte[] moves = new byte[length];    // Filled backwards, from the target to the start board
+        for(int handle = target; closedSet.getParent(handle) != ClosedSet.NO_PARENT; handle = closedSet.getParent(handle))
+            moves[--length] = (byte) closedSet.getMove(handle);
+        return moves;
+    }
+
+    /**
+     * Finds the board of the closed set with the lowest heuristic value (the first one found on ties)
+     * @return its handle
+     */
+    private int closestHandle(){
+
+        int bestHandle = 0;
+        for(int handle = 1; handle < closedSet.size(); ++handle)
+            if(closedSet.getHeuristic(handle) < closedSet.getHeuristic(bestHandle))
+                bestHandle = handle;
+        return bestHandle;
+    }
+}
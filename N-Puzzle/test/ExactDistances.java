@@ -0,0 +1,52 @@
+/**
+ * The exact number of moves from every board of a small puzzle to the goal, the ground truth of the tests.
+ *
+ * They come from a breadth-first search backwards from the goal. It is run in a ClosedSet: handles are given out in
+ * insertion order, so walking the handles in order is the breadth-first queue, and the cost of a handle is its distance.
+ */
+final class ExactDistances {
+
+    private static ClosedSet eightPuzzle;   // Built on first use, then shared by every test
+
+    private ExactDistances(){}
+
+    /**
+     * Grabs the distances of every solvable 3x3 board (181440 boards)
+     * @return a closed set holding every board, with its distance to the goal as its cost (in increasing order of handle)
+     */
+    static synchronized ClosedSet eightPuzzle(){
+        if(eightPuzzle == null)
+            eightPuzzle = of(BoardLayout.forEdgeLength(3));
+        return eightPuzzle;
+    }
+
+    /**
+     * Runs the breadth-first search from the goal over every board that can reach it
+     * @param layout the layout of the boards
+     * @return a closed set holding every board, with its distance to the goal as its cost (in increasing order of handle)
+     */
+    static ClosedSet of(BoardLayout layout){
+
+        ClosedSet closedSet = new ClosedSet(layout);
+        SuccessorBuffer successors = new SuccessorBuffer(layout, new ManhattanHeuristic(layout));
+        long[] state = new long[layout.words];
+
+        layout.copyGoal(state, 0);
+        int goal = -closedSet.lookupOrInsert(state, 0) - 1;
+        closedSet.setBlank(goal, layout.blankPosition(state, 0));
+
+        for(int handle = 0; handle < closedSet.size(); ++handle){
+            closedSet.copyState(handle, state, 0);
+            successors.generate(state, 0, closedSet.getBlank(handle), 0, Constants.NO_MOVE);
+            for(int i = 0; i < successors.count; ++i){
+                int child = closedSet.lookupOrInsert(successors.states, i * layout.words);
+                if(child < 0){
+                    child = -child - 1;
+                    closedSet.setCost(child, closedSet.getCost(handle) + 1);
+                    closedSet.setBlank(child, successors.blank[i]);
+                }
+            }
+        }
+        return closedSet;
+    }
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Checks every heuristic against the exact distances of the 8-puzzle (see ExactDistances), on every board:
+ *      the estimate never exceeds the distance (admissible), and is 0 on the goal
+ *      the value updated after a move equals the estimate of the child (the incremental update is correct)
+ *      the value changes by at most 1 per move (consistent), if the heuristic claims so (see Heuristic.isConsistent).
+ *      Pattern databases are not consistent, since their tables keep the lowest value over every position of the
+ *      open slot, and do not claim to be.
+ * See SolverTest for the same check on the solutions of the search algorithms.
+ */
+class HeuristicTest {
+
+    @ParameterizedTest
+    @EnumSource(HeuristicType.class)
+    void neverOverestimates(HeuristicType type){
+
+        ClosedSet distances = ExactDistances.eightPuzzle();
+        BoardLayout layout = distances.getLayout();
+        Heuristic heuristic = type.create(layout);
+        long[] state = new long[layout.words];
+
+        for(int handle = 0; handle < distances.size(); ++handle){
+            distances.copyState(handle, state, 0);
+            int estimate = heuristic.estimate(state, 0);
+            int distance = distances.getCost(handle);
+            int board = handle;
+            assertTrue(estimate <= distance, () -> "Board " + distances.getBoard(board).getBoardAsString() + " is "
+                                                   + distance + " moves from the goal, estimated " + estimate);
+        }
+        distances.copyState(0, state, 0);
+        assertEquals(0, heuristic.estimate(state, 0), "The goal must be estimated 0 moves from itself");
+    }
+
+    @ParameterizedTest
+    @EnumSource(HeuristicType.class)
+    void updatesMatchEstimatesAndConsistencyHolds(HeuristicType type){
+
+        ClosedSet distances = ExactDistances.eightPuzzle();
+        BoardLayout layout = distances.getLayout();
+        Heuristic heuristic = type.create(layout);
+        SuccessorBuffer successors = new SuccessorBuffer(layout, heuristic);
+        long[] state = new long[layout.words];
+        long wrongUpdates = 0, inconsistent = 0;
+
+        for(int handle = 0; handle < distances.size(); ++handle){
+            distances.copyState(handle, state, 0);
+            int estimate = heuristic.estimate(state, 0);
+            successors.generate(state, 0, distances.getBlank(handle), estimate, Constants.NO_MOVE);
+            for(int i = 0; i < successors.count; ++i){
+                int childEstimate = heuristic.estimate(successors.states, i * layout.words);
+                if(successors.heuristic[i] != childEstimate)
+                    wrongUpdates++;
+                if(Math.abs(childEstimate - estimate) > 1)
+                    inconsistent++;
+            }
+        }
+
+        assertEquals(0, wrongUpdates, "Moves whose updated value differs from the estimate of the child");
+        if(heuristic.isConsistent())
+            assertEquals(0, inconsistent, "Moves changing the value of a heuristic claiming to be consistent by more than 1");
+    }
+}
@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Checks the solutions of the search algorithms against the exact distances of the 8-puzzle (see ExactDistances).
+ * Every solution must reach the goal and be optimal, except those of weighted A*, which must be no longer than the
+ * bound it reports (see Solver.getBound). Every other algorithm, ARA* included once it has run down to a weight of 1,
+ * must report a bound of 1.
+ */
+class SolverTest {
+
+    private static final int SAMPLE_STRIDE = 50;    // Boards solved per algorithm: every 50th in breadth-first order, so every distance is covered
+
+    @ParameterizedTest
+    @EnumSource(Algorithm.class)
+    void solvesSampledBoardsOptimally(Algorithm algorithm){
+
+        ClosedSet distances = ExactDistances.eightPuzzle();
+        Solver solver = algorithm.create(distances.getLayout());
+        boolean optimal = algorithm != Algorithm.WEIGHTED_ASTAR;
+        for(int handle = 0; handle < distances.size(); handle += SAMPLE_STRIDE)
+            check(solver, optimal, distances, handle);
+        check(solver, optimal, distances, distances.size() - 1);   // One of the two farthest boards (31 moves)
+    }
+
+    /**
+     * ARA* with the pattern databases, on every board: they are not consistent, so ARA* must reopen boards within its
+     * runs to keep the bounds it reports (see WeightedSearch)
+     */
+    @Test
+    void anytimeSearchWithPatternDatabasesIsOptimal(){
+
+        ClosedSet distances = ExactDistances.eightPuzzle();
+        BoardLayout layout = distances.getLayout();
+        Solver solver = Algorithm.ANYTIME_ASTAR.create(layout, HeuristicType.PATTERN_DATABASE.create(layout));
+        for(int handle = 0; handle < distances.size(); ++handle)
+            check(solver, true, distances, handle);
+    }
+
+    /**
+     * Solves one board and checks its solution
+     * @param optimal true if the solver must prove its solution optimal (report a bound of 1)
+     */
+    private static void check(Solver solver, boolean optimal, ClosedSet distances, int handle){
+
+        Board board = distances.getBoard(handle);
+        SearchResult result = solver.solve(board);
+        String name = board.getBoardAsString();
+        int distance = distances.getCost(handle);
+        int length = result.getSolutionLength();
+
+        assertTrue(result.isSolved(), () -> name + " was not solved (" + result.getStatus() + ")");
+        assertTrue(reachesGoal(board, result), () -> "The moves of " + name + " do not reach the goal");
+        if(optimal)
+            assertEquals(1, solver.getBound(), () -> "No optimal solution proven for " + name);
+        if(solver.getBound() == 1)
+            assertEquals(distance, length, () -> "The solution of " + name + " is not optimal");
+        else
+            assertTrue(length <= distance * solver.getBound() + 1e-9,
+                       () -> name + ": " + length + " moves, the optimum is " + distance + " and the bound claimed " + solver.getBound());
+    }
+
+    /**
+     * Plays the moves of a result on a copy of the board
+     * @return true if every move is legal and the last one reaches the goal
+     */
+    private static boolean reachesGoal(Board board, SearchResult result){
+
+        Board copy = new Board(board.getLayout(), board.getBoardState(), 0);
+        for(int i = 0; i < result.getMoveCount(); ++i)
+            if(copy.makeMove(result.getMove(i)) == 0)
+                return false;
+        return copy.isGoal();
+    }
+}